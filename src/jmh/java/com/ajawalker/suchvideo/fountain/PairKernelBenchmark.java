@@ -0,0 +1,87 @@
+package com.ajawalker.suchvideo.fountain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.ajawalker.suchvideo.fountain.World.*;
+
+/**
+ * Compares the scalar and Vector API pair force kernels on one thread, over every moving body of a fountain
+ * that has been left to settle for a few frames so its neighbor lists look like they do mid-video. Run with
+ * {@code mvn -Pjmh test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PairKernelBenchmark {
+	@Param({"DOUBLE", "FLOAT"})
+	public Precision precision;
+
+	private BodyStore bodies;
+	private BatchForce scalar;
+	private BatchForce vector;
+	private int[] indices;
+	private double[] fx;
+	private double[] fy;
+
+	@Setup
+	public void setup() throws InterruptedException {
+		ExecutorService exec = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		Simulation sim = new Simulation(precision, new Random(1), NUM_BODIES, WIDTH, HEIGHT, exec, 16);
+		for (int frame = 0; frame < 10; frame++) {
+			sim.advance();
+		}
+		exec.shutdown();
+
+		bodies = sim.bodies();
+		NeighborList neighbors = sim.neighbors();
+		neighbors.update(bodies);
+		Magnetism magnetism = new Magnetism(MAGNETISM_DISTANCE, MAGNETISM_STRENGTH);
+		Repulsion repulsion = new Repulsion(REPULSION_DISTANCE, REPULSION_STRENGTH);
+		scalar = PairKernels.scalar(precision, neighbors, magnetism, repulsion);
+		vector = PairKernels.vector(precision, neighbors, magnetism, repulsion);
+		indices = new int[bodies.moving()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+		fx = new double[indices.length];
+		fy = new double[indices.length];
+	}
+
+	@Benchmark
+	public void scalar(Blackhole hole) {
+		run(scalar, hole);
+	}
+
+	@Benchmark
+	public void vector(Blackhole hole) {
+		run(vector, hole);
+	}
+
+	private void run(BatchForce kernel, Blackhole hole) {
+		Arrays.fill(fx, 0.0);
+		Arrays.fill(fy, 0.0);
+		kernel.apply(bodies, indices, 0, indices.length, fx, fy);
+		hole.consume(fx);
+		hole.consume(fy);
+	}
+}
@@ -0,0 +1,315 @@
+package com.ajawalker.suchvideo.electricblob;
+
+import com.ajawalker.suchvideo.position.BodyKernel;
+import com.ajawalker.suchvideo.position.IndexVisitor;
+import com.ajawalker.suchvideo.position.PairKernel;
+import com.ajawalker.suchvideo.position.ParticleSystem;
+import com.ajawalker.suchvideo.position.Vector;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An electric-looking blob of particles, which are spawned in swirling clumps at the top and fall into a pile
+ * at the bottom. This is just the simulation, so it can be run without making a video.
+ * <p>
+ * The particles (nodes) live in a {@link ParticleSystem}, numbered in the order they were spawned; each step
+ * settles them, pushes neighboring pairs apart, drags them, and moves and bounces them, each as a pass over the
+ * whole system.
+ */
+class Blob {
+	static final int WIDTH = 1280;
+	static final int HEIGHT = 720;
+
+	private static final double MIN_X = 0.0;
+	private static final double MAX_X = WIDTH;
+	private static final double MIN_Y = 0.0;
+	private static final double MAX_Y = HEIGHT;
+
+	private static final double GRID_CELL_SIZE = 2.5;
+
+	private static final double NODE_RADIUS = 3.0;
+	static final int GRID_RES_X = (int) (WIDTH / (NODE_RADIUS * GRID_CELL_SIZE));
+	static final int GRID_RES_Y = (int) (HEIGHT / (NODE_RADIUS * GRID_CELL_SIZE));
+	private static final double DRAW_RADIUS_FACTOR = 1.2;
+	private static final double NODE_PUSH_FORCE = 500000.0;
+	private static final double DRAG_FORCE = 0.2;
+	private static final double FLOCK_FORCE = 10.0;
+	private static final double GRAVITY_FORCE = 500.0;
+
+	private static final double SPAWN_FREQUENCY = 1.0;
+	private static final double SPAWN_RADIUS = 5.0;
+	private static final double SPAWN_ROTATION = 10.0;
+
+	private static final double RED_SCALE = 180000.0;
+	private static final double GREEN_SCALE = 120000.0;
+	private static final double BLUE_SCALE = 200.0;
+	private static final double BLUE_MINIMUM = 0.3;
+
+	private static final double[] NODE_PUSH_FORCE_POINTS = new double[]{
+			1.1 * NODE_RADIUS,
+			1.2 * NODE_RADIUS
+	};
+	private static final double[] NODE_PUSH_FORCE_SLOPE = new double[]{
+			NODE_PUSH_FORCE / NODE_RADIUS,
+			-NODE_PUSH_FORCE / NODE_RADIUS,
+	};
+	private static final double[] NODE_PUSH_FORCE_OFFSET = new double[]{
+			-NODE_PUSH_FORCE,
+			1.2 * NODE_PUSH_FORCE
+	};
+
+	/**
+	 * Bounce a node which has moved out of the picture back in.
+	 */
+	private static final BodyKernel BOUNCE = new BodyKernel() {
+		@Override
+		public void apply(ParticleSystem nodes, int i) {
+			double x = nodes.x(i);
+			double y = nodes.y(i);
+			double vx = nodes.vx(i);
+			double vy = nodes.vy(i);
+			if (x < MIN_X) {
+				x += 2 * (MIN_X - x);
+				vx += -1.2 * vx;
+			}
+			if (x > MAX_X) {
+				x += -2 * (x - MAX_X);
+				vx += -1.2 * vx;
+			}
+			if (y < MIN_Y) {
+				y += 2 * (MIN_Y - y);
+				vy += -2 * vy;
+			}
+			if (y > MAX_Y) {
+				y += -2 * (y - MAX_Y);
+				vy += -1.1 * vy;
+				vx += -1.1 * vx;
+			}
+			nodes.setPosition(i, x, y);
+			nodes.setVelocity(i, vx, vy);
+		}
+	};
+
+	private final Random rnd;
+	private final ExecutorService exec;
+	private final int numTasks;
+
+	// every node moves every step, so the nodes are indexed from scratch
+	private final ParticleSystem nodes = new ParticleSystem(MIN_X, MAX_X, MIN_Y, MAX_Y, GRID_RES_X, GRID_RES_Y);
+	private double[] stress = new double[0];
+
+	/**
+	 * Clear accumulated stress and apply some gravitational acceleration, ready for pushing.
+	 */
+	private final BodyKernel settle = new BodyKernel() {
+		@Override
+		public void apply(ParticleSystem nodes, int i) {
+			stress[i] = 0.0;
+			nodes.setAcceleration(i, 0.0, GRAVITY_FORCE);
+		}
+	};
+
+	/**
+	 * Push a pair of neighboring nodes apart based on their positions, and bring their velocities closer
+	 * together.
+	 */
+	private final PairKernel push = new PairKernel() {
+		@Override
+		public void apply(ParticleSystem nodes, int a, int b, double distanceSqr) {
+			double dist = Math.sqrt(distanceSqr);
+			int fi = 0;
+			while (fi < NODE_PUSH_FORCE_POINTS.length && dist > NODE_PUSH_FORCE_POINTS[fi]) {
+				fi += 1;
+			}
+			if (fi < NODE_PUSH_FORCE_POINTS.length) {
+				// equal and opposite
+				double scale = (NODE_PUSH_FORCE_SLOPE[fi] * dist + NODE_PUSH_FORCE_OFFSET[fi]) / dist;
+				double pushx = (nodes.x(b) - nodes.x(a)) * scale;
+				double pushy = (nodes.y(b) - nodes.y(a)) * scale;
+				double flockx = (nodes.vx(b) - nodes.vx(a)) * FLOCK_FORCE;
+				double flocky = (nodes.vy(b) - nodes.vy(a)) * FLOCK_FORCE;
+				force(a, pushx, pushy);
+				force(a, flockx, flocky);
+				force(b, -pushx, -pushy);
+				force(b, -flockx, -flocky);
+			}
+		}
+	};
+
+	/**
+	 * Apply some drag, once all pushing is done.
+	 */
+	private final BodyKernel drag = new BodyKernel() {
+		@Override
+		public void apply(ParticleSystem nodes, int i) {
+			force(i, nodes.vx(i) * -DRAG_FORCE, nodes.vy(i) * -DRAG_FORCE);
+		}
+	};
+
+	// amount of time until we need to spawn some more nodes
+	private double timeToNextSpawn = 0.0;
+
+	/**
+	 * Creates an empty blob; the first nodes are spawned upon the first call to {@link #spawn(double)}.
+	 * @param rnd the source of randomness for spawning nodes
+	 * @param exec the executor to push nodes around on
+	 * @param numTasks how many tasks to split pushing into
+	 */
+	Blob(Random rnd, ExecutorService exec, int numTasks) {
+		this.rnd = rnd;
+		this.exec = exec;
+		this.numTasks = numTasks;
+	}
+
+	/**
+	 * Returns where all of the nodes (blob particles) are now.
+	 */
+	List<Vector> positions() {
+		List<Vector> positions = new ArrayList<>(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			positions.add(nodes.pos(i));
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns the distance within which nodes push each other.
+	 */
+	double pushRadius() {
+		return NODE_PUSH_FORCE_POINTS[NODE_PUSH_FORCE_POINTS.length - 1];
+	}
+
+	/**
+	 * Pushes nodes around and moves them over the specified time step.
+	 * @param time the amount of time to move for
+	 */
+	void advance(double time) throws InterruptedException {
+		// for each pair of neighboring nodes, push them apart; pushes
+		// are equal and opposite, so each pair only needs working out
+		// once
+		nodes.index(exec, numTasks);
+		nodes.forEachParticle(settle, exec, numTasks);
+		nodes.forEachPairWithin(pushRadius(), push, exec, numTasks);
+		nodes.forEachParticle(drag, exec, numTasks);
+
+		// for each node, apply its accumulated force
+		nodes.integrate(time, exec, numTasks);
+		nodes.forEachParticle(BOUNCE, exec, numTasks);
+	}
+
+	/**
+	 * Spawns a new clump of nodes if it's time to, and counts down until the next time.
+	 * @param time the amount of time since this was last called
+	 */
+	void spawn(double time) {
+		if (timeToNextSpawn <= 0.0) {
+			Vector c = new Vector((MAX_X + MIN_X) / 2, MIN_Y + SPAWN_RADIUS * NODE_RADIUS);
+			Vector v = Vector.ZERO;
+			double d = 1.0;
+			double rv = rnd.nextDouble() * 2 * SPAWN_ROTATION - SPAWN_ROTATION;
+			for (double r = NODE_RADIUS; r < SPAWN_RADIUS * NODE_RADIUS; r += d * NODE_RADIUS) {
+				double dt = d * NODE_RADIUS / r;
+				double rt = rnd.nextDouble() * 2 * Math.PI;
+				for (double t = dt; t < 2 * Math.PI; t += dt) {
+					Vector pos = c.add(Vector.radial(t + rt + rnd.nextDouble() * 0.2 * dt, r + rnd.nextDouble() * 0.2 * NODE_RADIUS));
+					Vector toc = pos.to(c);
+					Vector vel = Vector.radial(toc.angleOf() + (Math.PI / 2), toc.length() * rv).add(v);
+					nodes.add(pos.x(), pos.y(), vel.x(), vel.y());
+				}
+			}
+			if (stress.length < nodes.size()) {
+				stress = Arrays.copyOf(stress, Math.max(nodes.size(), stress.length * 2));
+			}
+			timeToNextSpawn += SPAWN_FREQUENCY;
+		}
+		timeToNextSpawn -= time;
+	}
+
+	/**
+	 * Draws every node. The picture is split into horizontal bands which are drawn in parallel, each clipped to
+	 * its own rows and drawing only the nodes which reach into it, in the order they were spawned so that
+	 * overlapping nodes look the same whichever band they're drawn in.
+	 * @param g the graphics object to use to draw
+	 */
+	void draw(Graphics2D g) throws InterruptedException {
+		// the nodes were indexed before they last moved
+		nodes.index(exec, numTasks);
+		final double reach = NODE_RADIUS * (DRAW_RADIUS_FACTOR / 2.0);
+		final CountDownLatch latch = new CountDownLatch(numTasks);
+		for (int band = 0; band < numTasks; band++) {
+			final int top = HEIGHT * band / numTasks;
+			final int bottom = HEIGHT * (band + 1) / numTasks;
+			final Graphics2D bandGraphics = (Graphics2D) g.create();
+			bandGraphics.clipRect(0, top, WIDTH, bottom - top);
+			exec.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						// nodes outside the picture still show along its edges
+						Band inBand = new Band();
+						nodes.forEachInRect(Double.NEGATIVE_INFINITY, top - reach, Double.POSITIVE_INFINITY, bottom + reach, inBand);
+						Arrays.sort(inBand.found, 0, inBand.count);
+						for (int i = 0; i < inBand.count; i++) {
+							draw(bandGraphics, inBand.found[i]);
+						}
+					} finally {
+						bandGraphics.dispose();
+						latch.countDown();
+					}
+				}
+			});
+		}
+		latch.await();
+	}
+
+	/**
+	 * Apply a force to a node.
+	 * @param i the index of the node
+	 * @param fx the x value of the force
+	 * @param fy the y value of the force
+	 */
+	private void force(int i, double fx, double fy) {
+		nodes.accelerate(i, fx, fy);
+		stress[i] += Math.sqrt(fx * fx + fy * fy);
+	}
+
+	/**
+	 * Draw a node.
+	 * @param g2d the graphics object to use to draw
+	 * @param i the index of the node
+	 */
+	private void draw(Graphics2D g2d, int i) {
+		double ax = nodes.ax(i);
+		double ay = nodes.ay(i);
+		double vx = nodes.vx(i);
+		double vy = nodes.vy(i);
+		float r = (float) Math.min(stress[i] / RED_SCALE, 1.0);
+		float g = (float) Math.min(Math.sqrt(ax * ax + ay * ay) / GREEN_SCALE, 1.0);
+		float b = (float) (BLUE_MINIMUM + (float) Math.min(Math.sqrt(vx * vx + vy * vy) / BLUE_SCALE, 1.0 - BLUE_MINIMUM));
+		g2d.setPaint(new Color(r, g, b));
+		g2d.fill(new Ellipse2D.Double(nodes.x(i) - NODE_RADIUS * (DRAW_RADIUS_FACTOR / 2.0), nodes.y(i) - NODE_RADIUS * (DRAW_RADIUS_FACTOR / 2.0), NODE_RADIUS * DRAW_RADIUS_FACTOR, NODE_RADIUS * DRAW_RADIUS_FACTOR));
+	}
+
+	/**
+	 * Collects the indices of the nodes in a band of the picture.
+	 */
+	private static class Band implements IndexVisitor {
+		private int[] found = new int[256];
+		private int count = 0;
+
+		@Override
+		public void visit(int index) {
+			if (count == found.length) {
+				found = Arrays.copyOf(found, count * 2);
+			}
+			found[count++] = index;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.ajawalker.suchvideo.electricblob;
+
+import com.ajawalker.suchvideo.position.Grid;
+import com.ajawalker.suchvideo.position.HashedGrid;
+import com.ajawalker.suchvideo.position.Positioned;
+import com.ajawalker.suchvideo.position.QuadTree;
+import com.ajawalker.suchvideo.position.SpatialIndex;
+import com.ajawalker.suchvideo.position.Vector;
+import com.ajawalker.suchvideo.position.Visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares a {@link Grid} sized the way the blob sizes its grid with a {@link QuadTree} and with a
+ * {@link HashedGrid} of the same cell size, on where the blob's particles really are: the blob is run without
+ * drawing anything for a while, so its particles have piled up at the bottom, and then each index is timed on
+ * those positions. The same number of particles spread uniformly over the picture are timed too, for
+ * comparison. Results are reported as CSV in milliseconds.
+ * <p>
+ * Takes as optional arguments the number of seconds to run the blob for (default 30), the number of rounds
+ * to time after one round of warm up (default 5) and the quadtree's bucket size (default 8).
+ */
+public class IndexBenchmark {
+	private static final double STEP_SIZE = 1.0 / 1200.0;
+	private static final long SEED = 1;
+
+	public static void main(String[] args) throws InterruptedException {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 30.0;
+		int numRounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		final int bucketSize = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+		// run the blob until it has piled up, keeping where its particles
+		// were for the last two steps so they can be moved between them
+		ExecutorService exec = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		Blob blob = new Blob(new Random(SEED), exec, Runtime.getRuntime().availableProcessors() * 4);
+		int numSteps = (int) Math.round(seconds / STEP_SIZE);
+		for (int step = 0; step < numSteps; step++) {
+			blob.advance(STEP_SIZE);
+			blob.spawn(STEP_SIZE);
+		}
+		List<Vector> before = blob.positions();
+		blob.advance(STEP_SIZE);
+		List<Vector> after = blob.positions();
+		exec.shutdown();
+		double radius = blob.pushRadius();
+
+		// and spread the same number uniformly, moving them about as far
+		Random rnd = new Random(SEED);
+		List<Vector> uniformBefore = new ArrayList<>();
+		List<Vector> uniformAfter = new ArrayList<>();
+		for (int i = 0; i < before.size(); i++) {
+			Vector pos = new Vector(rnd.nextDouble() * Blob.WIDTH, rnd.nextDouble() * Blob.HEIGHT);
+			uniformBefore.add(pos);
+			uniformAfter.add(pos.add(after.get(i).add(before.get(i).scale(-1.0))));
+		}
+
+		final int resx = Blob.GRID_RES_X;
+		final int resy = Blob.GRID_RES_Y;
+		System.out.println("distribution,index,items,occupied_cells,max_per_cell,build_ms,update_ms,query_ms,neighbors_per_item");
+		for (String distribution : new String[]{"blob", "uniform"}) {
+			List<Vector> from = distribution.equals("blob") ? before : uniformBefore;
+			List<Vector> to = distribution.equals("blob") ? after : uniformAfter;
+			String occupancy = occupancy(from, resx, resy);
+			run(distribution, "grid", occupancy, from, to, radius, numRounds, new Factory() {
+				@Override
+				public SpatialIndex<Item> create() {
+					return new Grid<>(0.0, Blob.WIDTH, 0.0, Blob.HEIGHT, resx, resy);
+				}
+			});
+			run(distribution, "quadtree", occupancy, from, to, radius, numRounds, new Factory() {
+				@Override
+				public SpatialIndex<Item> create() {
+					return new QuadTree<>(0.0, Blob.WIDTH, 0.0, Blob.HEIGHT, bucketSize);
+				}
+			});
+			run(distribution, "hashed", occupancy, from, to, radius, numRounds, new Factory() {
+				@Override
+				public SpatialIndex<Item> create() {
+					return new HashedGrid<>((double) Blob.WIDTH / resx);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Times building an index from scratch, moving every item within it and asking every item for its
+	 * neighbors, and prints the results.
+	 * @param distribution the name of how the items are spread
+	 * @param name the name of the index
+	 * @param occupancy how the items fill the blob's grid, as CSV
+	 * @param from where the items start
+	 * @param to where the items move to
+	 * @param radius the radius within which to find neighbors
+	 * @param numRounds how many rounds to time after warming up
+	 * @param factory creates empty indexes
+	 */
+	private static void run(String distribution, String name, String occupancy, List<Vector> from, List<Vector> to,
+	                        double radius, int numRounds, Factory factory) {
+		long build = 0;
+		long update = 0;
+		long query = 0;
+		Counter counter = new Counter();
+		for (int round = 0; round <= numRounds; round++) {
+			List<Item> items = new ArrayList<>(from.size());
+			for (Vector pos : from) {
+				items.add(new Item(pos));
+			}
+
+			long start = System.nanoTime();
+			SpatialIndex<Item> index = factory.create();
+			for (Item item : items) {
+				index.put(item);
+			}
+			long built = System.nanoTime();
+			for (int i = 0; i < items.size(); i++) {
+				items.get(i).pos = to.get(i);
+				index.put(items.get(i));
+			}
+			long updated = System.nanoTime();
+			counter.count = 0;
+			for (Item item : items) {
+				index.forEachNeighbor(item, radius, counter);
+			}
+			long queried = System.nanoTime();
+
+			// the first round is just to warm up
+			if (round > 0) {
+				build += built - start;
+				update += updated - built;
+				query += queried - updated;
+			}
+		}
+		System.out.format("%s,%s,%d,%s,%.2f,%.2f,%.2f,%.2f%n",
+				distribution,
+				name,
+				from.size(),
+				occupancy,
+				build / 1.0e6 / numRounds,
+				update / 1.0e6 / numRounds,
+				query / 1.0e6 / numRounds,
+				(double) counter.count / from.size());
+	}
+
+	/**
+	 * Works out how many cells of a grid are occupied by some positions and how many of them the busiest cell
+	 * holds.
+	 * @param positions the positions
+	 * @param resx how many cells the grid has along the x-axis
+	 * @param resy how many cells the grid has along the y-axis
+	 * @return the number of occupied cells and most positions in a cell, as CSV
+	 */
+	private static String occupancy(List<Vector> positions, int resx, int resy) {
+		int[] counts = new int[(resx + 2) * (resy + 2)];
+		int occupied = 0;
+		int max = 0;
+		for (Vector pos : positions) {
+			int x = Math.max(0, Math.min(resx + 1, (int) Math.floor(pos.x() / Blob.WIDTH * resx) + 1));
+			int y = Math.max(0, Math.min(resy + 1, (int) Math.floor(pos.y() / Blob.HEIGHT * resy) + 1));
+			int count = ++counts[x * (resy + 2) + y];
+			occupied += count == 1 ? 1 : 0;
+			max = Math.max(max, count);
+		}
+		return occupied + "," + max;
+	}
+
+	/**
+	 * Creates empty indexes.
+	 */
+	private interface Factory {
+		SpatialIndex<Item> create();
+	}
+
+	/**
+	 * Counts the neighbors it is shown.
+	 */
+	private static class Counter implements Visitor<Item> {
+		private long count = 0;
+
+		@Override
+		public void visit(Item item) {
+			count++;
+		}
+	}
+
+	/**
+	 * Something which moves around.
+	 */
+	private static class Item implements Positioned {
+		private Vector pos;
+
+		private Item(Vector pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		public Vector pos() {
+			return pos;
+		}
+	}
+}
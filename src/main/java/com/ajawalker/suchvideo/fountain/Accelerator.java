@@ -2,7 +2,9 @@ package com.ajawalker.suchvideo.fountain;
 
 import java.awt.*;
 
-public class Accelerator implements Force {
+public class Accelerator implements Force, BatchForce {
+	public static final Color COLOR = new Color(80, 0, 10);
+
 	private final Vector pos;
 	private final double radius;
 	private final Vector acc;
@@ -13,6 +15,14 @@ public class Accelerator implements Force {
 		this.acc = acc;
 	}
 
+	public Vector pos() {
+		return pos;
+	}
+
+	public double radius() {
+		return radius;
+	}
+
 	@Override
 	public Vector calc(Body body) {
 		double distance = pos.to(body.pos()).length();
@@ -23,8 +33,22 @@ public class Accelerator implements Force {
 		}
 	}
 
+	@Override
+	public void apply(BodyStore bodies, int[] indices, int from, int to, double[] fx, double[] fy) {
+		double rsqr = radius * radius;
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			double dx = bodies.x(i) - pos.x();
+			double dy = bodies.y(i) - pos.y();
+			if (dx * dx + dy * dy < rsqr) {
+				fx[i] += acc.x();
+				fy[i] += acc.y();
+			}
+		}
+	}
+
 	public void draw(Graphics graphics) {
-		graphics.setColor(new Color(80, 0, 10));
+		graphics.setColor(COLOR);
 		graphics.fillArc(
 				(int) (pos.x() - radius),
 				World.HEIGHT - (int) (pos.y() + radius),
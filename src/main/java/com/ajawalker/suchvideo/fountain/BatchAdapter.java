@@ -0,0 +1,33 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * Applies a plain per-body force in batches by calculating it for one body at a time.
+ */
+public class BatchAdapter implements BatchForce {
+	private final Force force;
+
+	private BatchAdapter(Force force) {
+		this.force = force;
+	}
+
+	/**
+	 * Returns a batch version of a force; forces which can already be applied in batches are returned as is.
+	 * @param force the force
+	 */
+	public static BatchForce of(Force force) {
+		if (force instanceof BatchForce) {
+			return (BatchForce) force;
+		}
+		return new BatchAdapter(force);
+	}
+
+	@Override
+	public void apply(BodyStore bodies, int[] indices, int from, int to, double[] fx, double[] fy) {
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			Vector f = force.calc(bodies.body(i));
+			fx[i] += f.x();
+			fy[i] += f.y();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * A force which is applied to many bodies at once, straight from a body store into primitive force arrays,
+ * rather than to one body object at a time. Any {@link Force} can be applied this way by wrapping it with
+ * {@link BatchAdapter#of(Force)}.
+ */
+public interface BatchForce {
+	/**
+	 * Adds this force to bodies in a store.
+	 * @param bodies the store of bodies
+	 * @param indices indices of bodies in the store
+	 * @param from the position in the indices of the first body to apply the force to
+	 * @param to the position in the indices after the last body to apply the force to
+	 * @param fx the x components of the forces on the bodies, indexed by body, to add to
+	 * @param fy the y components of the forces on the bodies, indexed by body, to add to
+	 */
+	void apply(BodyStore bodies, int[] indices, int from, int to, double[] fx, double[] fy);
+}
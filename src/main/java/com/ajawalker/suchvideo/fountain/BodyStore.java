@@ -0,0 +1,232 @@
+package com.ajawalker.suchvideo.fountain;
+
+import com.ajawalker.suchvideo.position.HilbertCurve;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the state of all bodies in primitive arrays, one array per property, so that passes over many bodies
+ * walk memory in order. Moving bodies come first, followed by anchors, which take part in forces but are
+ * never moved. How the state is stored depends on the precision of the store; only one kind of store should
+ * be in use at a time so that calls to the accessors can be inlined.
+ */
+public abstract class BodyStore {
+	final int[] block;
+	private final int[] ids;
+
+	private int size;
+	private int moving;
+
+	/**
+	 * Creates a store for the provided bodies and anchors.
+	 * @param bodies the moving bodies
+	 * @param anchors the anchors
+	 */
+	protected BodyStore(List<Body> bodies, List<Body> anchors) {
+		this(bodies.size(), bodies.size() + anchors.size());
+	}
+
+	/**
+	 * Creates a store with room for some bodies, whose state is left for the subclass to fill in.
+	 * @param moving how many moving bodies there are
+	 * @param size how many bodies there are in total, including anchors
+	 */
+	protected BodyStore(int moving, int size) {
+		this.moving = moving;
+		this.size = size;
+		block = new int[size];
+		ids = new int[size];
+		for (int i = 0; i < size; i++) {
+			block[i] = 1;
+			ids[i] = i;
+		}
+	}
+
+	/**
+	 * Creates a store holding the state of the provided bodies and anchors.
+	 * @param precision the precision to store state in
+	 * @param bodies the moving bodies, which will be stored first in the same order
+	 * @param anchors the anchors, which will be stored after the moving bodies
+	 * @return the new store
+	 */
+	public static BodyStore create(Precision precision, List<Body> bodies, List<Body> anchors) {
+		switch (precision) {
+			case FLOAT:
+				return new FloatBodyStore(bodies, anchors);
+			default:
+				return new DoubleBodyStore(bodies, anchors);
+		}
+	}
+
+	/**
+	 * Returns how many bodies, including anchors, are in this store.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns how many moving bodies are in this store; these are the bodies at indices zero up to this count.
+	 */
+	public int moving() {
+		return moving;
+	}
+
+	/**
+	 * Returns how many bodies, including anchors, this store has room for.
+	 */
+	int capacity() {
+		return block.length;
+	}
+
+	/**
+	 * Changes how many bodies are in this store, so that it can be filled in afresh rather than replaced by
+	 * a new one. Every body's block and id are reset, but the rest of its state is left for the caller to fill
+	 * in.
+	 * @param moving how many moving bodies there are
+	 * @param size how many bodies there are in total, including anchors
+	 */
+	void resize(int moving, int size) {
+		if (moving < 0 || moving > size || size > capacity()) {
+			throw new IllegalArgumentException("cannot hold " + moving + " moving of " + size + " bodies in room for "
+					+ capacity());
+		}
+		this.moving = moving;
+		this.size = size;
+		for (int i = 0; i < size; i++) {
+			block[i] = 1;
+			ids[i] = i;
+		}
+	}
+
+	/**
+	 * Returns the precision state is stored in.
+	 */
+	public abstract Precision precision();
+
+	public abstract double x(int i);
+
+	public abstract double y(int i);
+
+	public abstract double vx(int i);
+
+	public abstract double vy(int i);
+
+	public abstract double ax(int i);
+
+	public abstract double ay(int i);
+
+	public abstract double charge(int i);
+
+	public abstract double mass(int i);
+
+	/**
+	 * Returns the index a body had when the store was created, which stays the same however bodies are
+	 * reordered.
+	 * @param i the current index of the body
+	 */
+	public int id(int i) {
+		return ids[i];
+	}
+
+	public double speed(int i) {
+		double vx = vx(i);
+		double vy = vy(i);
+		return Math.sqrt(vx * vx + vy * vy);
+	}
+
+	/**
+	 * Returns a body in the store as it would be if it had been given the provided index in a list; bodies
+	 * are taken from the first list and then the second.
+	 */
+	static Body get(List<Body> bodies, List<Body> anchors, int i) {
+		return i < bodies.size() ? bodies.get(i) : anchors.get(i - bodies.size());
+	}
+
+	/**
+	 * Reorders the moving bodies along a Hilbert curve, so that bodies close together in space are close
+	 * together in the store. Ranges of indices then cover compact patches of space, keeping the neighbors a
+	 * worker looks at in cache. Any index of a body held elsewhere is invalid afterwards.
+	 */
+	public void sortSpatially() {
+		double minx = Double.POSITIVE_INFINITY;
+		double miny = Double.POSITIVE_INFINITY;
+		double maxx = Double.NEGATIVE_INFINITY;
+		double maxy = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < moving; i++) {
+			minx = Math.min(minx, x(i));
+			miny = Math.min(miny, y(i));
+			maxx = Math.max(maxx, x(i));
+			maxy = Math.max(maxy, y(i));
+		}
+
+		// sort the position of each body along the curve together with its
+		// index, which fits below it in the same long
+		HilbertCurve curve = new HilbertCurve(minx, maxx, miny, maxy);
+		long[] keys = new long[moving];
+		for (int i = 0; i < moving; i++) {
+			keys[i] = curve.index(x(i), y(i)) << 31 | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[moving];
+		for (int k = 0; k < moving; k++) {
+			order[k] = (int) (keys[k] & Integer.MAX_VALUE);
+		}
+
+		int[] scratch = new int[moving];
+		permute(ids, order, scratch);
+		permute(block, order, scratch);
+		reorder(order);
+	}
+
+	/**
+	 * Reorders the state of the moving bodies.
+	 * @param order the current index of the body to put at each index
+	 */
+	abstract void reorder(int[] order);
+
+	/**
+	 * Reorders the start of an array.
+	 * @param values the array to reorder
+	 * @param order the current index of the value to put at each index
+	 * @param scratch an array at least as long as the order to use while reordering
+	 */
+	static void permute(int[] values, int[] order, int[] scratch) {
+		System.arraycopy(values, 0, scratch, 0, order.length);
+		for (int k = 0; k < order.length; k++) {
+			values[k] = scratch[order[k]];
+		}
+	}
+
+	/**
+	 * Moves bodies by their velocities over some time.
+	 * @param from the index of the first body to move
+	 * @param to the index after the last body to move
+	 * @param time the time to move for
+	 */
+	abstract void drift(int from, int to, double time);
+
+	/**
+	 * Changes the velocity of a body by its acceleration over some time.
+	 * @param i the index of the body
+	 * @param time the time to accelerate for
+	 */
+	abstract void kick(int i, double time);
+
+	/**
+	 * Sets the acceleration of a body from the total force on it.
+	 * @param i the index of the body
+	 * @param fx the x component of the force
+	 * @param fy the y component of the force
+	 */
+	abstract void accelerate(int i, double fx, double fy);
+
+	/**
+	 * Returns a copy of the current state of a body as a body object.
+	 * @param i the index of the body
+	 */
+	public Body body(int i) {
+		return new Body(new Vector(x(i), y(i)), new Vector(vx(i), vy(i)), charge(i), mass(i));
+	}
+}
@@ -0,0 +1,136 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.util.List;
+
+/**
+ * A body store which keeps all state in doubles.
+ */
+public class DoubleBodyStore extends BodyStore {
+	final double[] x;
+	final double[] y;
+	final double[] vx;
+	final double[] vy;
+	final double[] ax;
+	final double[] ay;
+	final double[] charge;
+	final double[] mass;
+
+	/**
+	 * Creates a store holding the state of the provided bodies and anchors.
+	 * @param bodies the moving bodies, which will be stored first in the same order
+	 * @param anchors the anchors, which will be stored after the moving bodies
+	 */
+	public DoubleBodyStore(List<Body> bodies, List<Body> anchors) {
+		super(bodies, anchors);
+		x = new double[size()];
+		y = new double[size()];
+		vx = new double[size()];
+		vy = new double[size()];
+		ax = new double[size()];
+		ay = new double[size()];
+		charge = new double[size()];
+		mass = new double[size()];
+		for (int i = 0; i < size(); i++) {
+			Body body = get(bodies, anchors, i);
+			x[i] = body.pos().x();
+			y[i] = body.pos().y();
+			vx[i] = body.vel().x();
+			vy[i] = body.vel().y();
+			charge[i] = body.charge();
+			mass[i] = body.mass();
+		}
+	}
+
+	/**
+	 * Creates a store with room for some bodies, all of whose state is zero until it is filled in.
+	 * @param moving how many moving bodies there are
+	 * @param size how many bodies there are in total, including anchors
+	 */
+	DoubleBodyStore(int moving, int size) {
+		super(moving, size);
+		x = new double[size];
+		y = new double[size];
+		vx = new double[size];
+		vy = new double[size];
+		ax = new double[size];
+		ay = new double[size];
+		charge = new double[size];
+		mass = new double[size];
+	}
+
+	@Override
+	public Precision precision() {
+		return Precision.DOUBLE;
+	}
+
+	@Override
+	public double x(int i) {
+		return x[i];
+	}
+
+	@Override
+	public double y(int i) {
+		return y[i];
+	}
+
+	@Override
+	public double vx(int i) {
+		return vx[i];
+	}
+
+	@Override
+	public double vy(int i) {
+		return vy[i];
+	}
+
+	@Override
+	public double ax(int i) {
+		return ax[i];
+	}
+
+	@Override
+	public double ay(int i) {
+		return ay[i];
+	}
+
+	@Override
+	public double charge(int i) {
+		return charge[i];
+	}
+
+	@Override
+	public double mass(int i) {
+		return mass[i];
+	}
+
+	@Override
+	void drift(int from, int to, double time) {
+		for (int i = from; i < to; i++) {
+			x[i] += vx[i] * time;
+			y[i] += vy[i] * time;
+		}
+	}
+
+	@Override
+	void kick(int i, double time) {
+		vx[i] += ax[i] * time;
+		vy[i] += ay[i] * time;
+	}
+
+	@Override
+	void accelerate(int i, double fx, double fy) {
+		ax[i] = fx / mass[i];
+		ay[i] = fy / mass[i];
+	}
+
+	@Override
+	void reorder(int[] order) {
+		double[] scratch = new double[order.length];
+		for (double[] values : new double[][]{x, y, vx, vy, ax, ay, charge, mass}) {
+			System.arraycopy(values, 0, scratch, 0, order.length);
+			for (int k = 0; k < order.length; k++) {
+				values[k] = scratch[order[k]];
+			}
+		}
+	}
+}
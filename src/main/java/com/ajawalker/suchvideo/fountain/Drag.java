@@ -1,6 +1,6 @@
 package com.ajawalker.suchvideo.fountain;
 
-public class Drag implements Force {
+public class Drag implements Force, BatchForce {
 	private final double factor;
 
 	public Drag(double factor) {
@@ -11,4 +11,13 @@ public class Drag implements Force {
 	public Vector calc(Body body) {
 		return body.vel().scale(-factor);
 	}
+
+	@Override
+	public void apply(BodyStore bodies, int[] indices, int from, int to, double[] fx, double[] fy) {
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			fx[i] -= bodies.vx(i) * factor;
+			fy[i] -= bodies.vy(i) * factor;
+		}
+	}
 }
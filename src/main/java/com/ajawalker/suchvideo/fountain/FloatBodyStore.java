@@ -0,0 +1,120 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.util.List;
+
+/**
+ * A body store which keeps all state in floats.
+ */
+public class FloatBodyStore extends BodyStore {
+	final float[] x;
+	final float[] y;
+	final float[] vx;
+	final float[] vy;
+	final float[] ax;
+	final float[] ay;
+	final float[] charge;
+	final float[] mass;
+
+	/**
+	 * Creates a store holding the state of the provided bodies and anchors.
+	 * @param bodies the moving bodies, which will be stored first in the same order
+	 * @param anchors the anchors, which will be stored after the moving bodies
+	 */
+	public FloatBodyStore(List<Body> bodies, List<Body> anchors) {
+		super(bodies, anchors);
+		x = new float[size()];
+		y = new float[size()];
+		vx = new float[size()];
+		vy = new float[size()];
+		ax = new float[size()];
+		ay = new float[size()];
+		charge = new float[size()];
+		mass = new float[size()];
+		for (int i = 0; i < size(); i++) {
+			Body body = get(bodies, anchors, i);
+			x[i] = (float) body.pos().x();
+			y[i] = (float) body.pos().y();
+			vx[i] = (float) body.vel().x();
+			vy[i] = (float) body.vel().y();
+			charge[i] = (float) body.charge();
+			mass[i] = (float) body.mass();
+		}
+	}
+
+	@Override
+	public Precision precision() {
+		return Precision.FLOAT;
+	}
+
+	@Override
+	public double x(int i) {
+		return x[i];
+	}
+
+	@Override
+	public double y(int i) {
+		return y[i];
+	}
+
+	@Override
+	public double vx(int i) {
+		return vx[i];
+	}
+
+	@Override
+	public double vy(int i) {
+		return vy[i];
+	}
+
+	@Override
+	public double ax(int i) {
+		return ax[i];
+	}
+
+	@Override
+	public double ay(int i) {
+		return ay[i];
+	}
+
+	@Override
+	public double charge(int i) {
+		return charge[i];
+	}
+
+	@Override
+	public double mass(int i) {
+		return mass[i];
+	}
+
+	@Override
+	void drift(int from, int to, double time) {
+		float t = (float) time;
+		for (int i = from; i < to; i++) {
+			x[i] += vx[i] * t;
+			y[i] += vy[i] * t;
+		}
+	}
+
+	@Override
+	void kick(int i, double time) {
+		vx[i] += ax[i] * (float) time;
+		vy[i] += ay[i] * (float) time;
+	}
+
+	@Override
+	void accelerate(int i, double fx, double fy) {
+		ax[i] = (float) (fx / mass[i]);
+		ay[i] = (float) (fy / mass[i]);
+	}
+
+	@Override
+	void reorder(int[] order) {
+		float[] scratch = new float[order.length];
+		for (float[] values : new float[][]{x, y, vx, vy, ax, ay, charge, mass}) {
+			System.arraycopy(values, 0, scratch, 0, order.length);
+			for (int k = 0; k < order.length; k++) {
+				values[k] = scratch[order[k]];
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * Applies pair forces between each body and its neighbors within the cutoff, working entirely in single
+ * precision until each body's total is added to the force arrays. Only works with a {@link FloatBodyStore}.
+ */
+public class FloatInteractions implements BatchForce {
+	private final NeighborList neighbors;
+	private final PairForce[] forces;
+
+	/**
+	 * Creates new interactions.
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param forces the pair forces acting between neighbors
+	 */
+	public FloatInteractions(NeighborList neighbors, PairForce... forces) {
+		this.neighbors = neighbors;
+		this.forces = forces;
+	}
+
+	@Override
+	public void apply(BodyStore store, int[] indices, int from, int to, double[] fx, double[] fy) {
+		FloatBodyStore bodies = (FloatBodyStore) store;
+		float csqr = (float) (neighbors.cutoff() * neighbors.cutoff());
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			float x = bodies.x[i];
+			float y = bodies.y[i];
+			float sumx = 0.0f;
+			float sumy = 0.0f;
+			for (int n = neighbors.start(i); n < neighbors.end(i); n++) {
+				int j = neighbors.neighbor(n);
+				float dx = bodies.x[j] - x;
+				float dy = bodies.y[j] - y;
+				float dsqr = dx * dx + dy * dy;
+				if (dsqr <= csqr) {
+					float length = (float) Math.sqrt(dsqr);
+					float scale = 0.0f;
+					for (PairForce force : forces) {
+						scale += force.scale(bodies, i, j, length);
+					}
+					sumx += dx / length * scale;
+					sumy += dy / length * scale;
+				}
+			}
+			fx[i] += sumx;
+			fy[i] += sumy;
+		}
+	}
+}
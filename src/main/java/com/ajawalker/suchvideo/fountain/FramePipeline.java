@@ -0,0 +1,86 @@
+package com.ajawalker.suchvideo.fountain;
+
+import com.ajawalker.suchvideo.VideoMaker;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws and encodes frames on a separate stage so the simulation can carry on with the next frame in the
+ * meantime. Frames are handed over as snapshots and are drawn and encoded in the order they were submitted.
+ * Only a limited number of frames may be waiting at once, after which submitting blocks until the stage
+ * catches up.
+ */
+public class FramePipeline {
+	private final VideoMaker video;
+	private final Rasterizer rasterizer;
+	private final Accelerator heat;
+	private final BufferedImage image;
+	private final ExecutorService stage = Executors.newSingleThreadExecutor();
+	private final Semaphore slots;
+
+	private volatile Exception failure = null;
+
+	/**
+	 * Creates a new pipeline.
+	 * @param video the video to encode frames to
+	 * @param rasterizer the rasterizer to draw frames with
+	 * @param heat the accelerator
+	 * @param width the width of the frames
+	 * @param height the height of the frames
+	 * @param depth how many frames may be waiting to be drawn at once
+	 */
+	public FramePipeline(VideoMaker video, Rasterizer rasterizer, Accelerator heat, int width, int height, int depth) {
+		this.video = video;
+		this.rasterizer = rasterizer;
+		this.heat = heat;
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		this.slots = new Semaphore(depth);
+	}
+
+	/**
+	 * Hands a frame over to be drawn and encoded, blocking while too many frames are already waiting.
+	 * @param bodies a snapshot of the bodies and anchors for the frame
+	 */
+	public void submit(final Snapshot bodies) throws InterruptedException {
+		slots.acquire();
+		check();
+		stage.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (failure == null) {
+						rasterizer.draw(image, heat, bodies);
+						video.addFrame(image);
+					}
+				} catch (Exception e) {
+					failure = e;
+				} finally {
+					slots.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits for all submitted frames to be drawn and encoded and then finishes the video.
+	 */
+	public void finish() throws InterruptedException {
+		stage.shutdown();
+		stage.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		check();
+		video.finish();
+	}
+
+	/**
+	 * Throws if drawing or encoding any frame so far has failed.
+	 */
+	private void check() {
+		if (failure != null) {
+			throw new IllegalStateException("failed to draw frame", failure);
+		}
+	}
+}
@@ -1,6 +1,6 @@
 package com.ajawalker.suchvideo.fountain;
 
-public class Gravity implements Force {
+public class Gravity implements Force, BatchForce {
 	private final Vector acc;
 
 	public Gravity(Vector acc) {
@@ -11,4 +11,15 @@ public class Gravity implements Force {
 	public Vector calc(Body body) {
 		return acc.scale(body.mass());
 	}
+
+	@Override
+	public void apply(BodyStore bodies, int[] indices, int from, int to, double[] fx, double[] fy) {
+		double accx = acc.x();
+		double accy = acc.y();
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			fx[i] += accx * bodies.mass(i);
+			fy[i] += accy * bodies.mass(i);
+		}
+	}
 }
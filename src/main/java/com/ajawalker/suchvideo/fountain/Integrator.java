@@ -0,0 +1,277 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A leapfrog (kick-drift-kick) integrator with hierarchical block time steps. Each frame is divided into a
+ * power-of-two number of fine steps, chosen so the fastest body moves no further than the maximum move per
+ * step. Every body is then given its own block of fine steps, also a power of two, which is as long as it can
+ * be without that body moving further than the maximum move. All bodies drift every fine step, which is
+ * cheap, but forces are only evaluated for a body at the end of its block, so slow bodies are rarely updated.
+ * Should a body speed up so much that a single fine step is too long for it, the remaining fine steps are
+ * split in two until it fits.
+ */
+public class Integrator {
+	static final int MAX_STEPS = 1 << 20;
+
+	private final ExecutorService exec;
+	private final int numTasks;
+	private final double maxMove;
+
+	private boolean primed = false;
+	private int[] active = new int[0];
+	private double[] fx = new double[0];
+	private double[] fy = new double[0];
+	private int lastSteps = 0;
+	private long lastEvaluations = 0;
+	private long lastSaved = 0;
+
+	/**
+	 * Creates a new integrator.
+	 * @param exec the executor to run work on
+	 * @param numTasks how many tasks to split each parallel pass into
+	 * @param maxMove the maximum distance a body may move between force evaluations
+	 */
+	public Integrator(ExecutorService exec, int numTasks, double maxMove) {
+		this.exec = exec;
+		this.numTasks = numTasks;
+		this.maxMove = maxMove;
+	}
+
+	/**
+	 * Advances the moving bodies in a store by the specified amount of time. At the end all bodies are
+	 * synchronized, i.e. their positions and velocities correspond to the same point in time.
+	 * @param bodies the store of bodies to advance
+	 * @param time how much time to advance by
+	 * @param field the forces acting on the bodies
+	 */
+	public void advance(final BodyStore bodies, double time, final ForceField field) throws InterruptedException {
+		final int n = bodies.moving();
+		if (active.length != n) {
+			active = new int[n];
+			fx = new double[n];
+			fy = new double[n];
+		}
+
+		// bodies need their accelerations before their first half kick
+		if (!primed) {
+			for (int i = 0; i < n; i++) {
+				active[i] = i;
+			}
+			force(bodies, n, field);
+			primed = true;
+		}
+
+		// find how many fine steps we need for the fastest body
+		double minStep = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			minStep = Math.min(minStep, maxStep(bodies, i));
+		}
+		int numSteps = 1;
+		while (numSteps < MAX_STEPS && time / numSteps > minStep) {
+			numSteps *= 2;
+		}
+		double dt = time / numSteps;
+
+		// give every body its block and the opening half kick
+		for (int i = 0; i < n; i++) {
+			bodies.block[i] = block(bodies, i, dt, numSteps, 0);
+			bodies.kick(i, bodies.block[i] * dt / 2.0);
+		}
+
+		long evaluations = 0;
+		int step = 0;
+		while (step < numSteps) {
+			step++;
+
+			// everything drifts
+			final double drift = dt;
+			parallel(n, new Range() {
+				@Override
+				public void run(int from, int to) {
+					bodies.drift(from, to, drift);
+				}
+			});
+
+			// bodies at the end of their block are forced and given their
+			// closing half kick
+			int numActive = 0;
+			for (int i = 0; i < n; i++) {
+				if (step % bodies.block[i] == 0) {
+					active[numActive++] = i;
+				}
+			}
+			force(bodies, numActive, field);
+			minStep = Double.POSITIVE_INFINITY;
+			for (int k = 0; k < numActive; k++) {
+				int i = active[k];
+				bodies.kick(i, bodies.block[i] * dt / 2.0);
+				minStep = Math.min(minStep, maxStep(bodies, i));
+			}
+			evaluations += numActive;
+
+			// if a body has sped up so much that even a single fine step is too
+			// long for it, split every remaining fine step in two; blocks are
+			// counted in fine steps so they double too
+			if (step < numSteps) {
+				while (numSteps < MAX_STEPS && dt > minStep) {
+					numSteps *= 2;
+					step *= 2;
+					dt /= 2.0;
+					for (int i = 0; i < n; i++) {
+						bodies.block[i] *= 2;
+					}
+				}
+			}
+
+			// and then the opening half kick of their next block
+			if (step < numSteps) {
+				for (int k = 0; k < numActive; k++) {
+					int i = active[k];
+					bodies.block[i] = block(bodies, i, dt, numSteps, step);
+					bodies.kick(i, bodies.block[i] * dt / 2.0);
+				}
+			}
+		}
+
+		lastSteps = numSteps;
+		lastEvaluations = evaluations;
+		lastSaved = (long) n * numSteps - evaluations;
+	}
+
+	/**
+	 * Evaluates the forces on the active bodies and updates their accelerations.
+	 * @param bodies the store of bodies
+	 * @param numActive how many of the active indices are in use
+	 * @param field the forces acting on the bodies
+	 */
+	private void force(final BodyStore bodies, int numActive, final ForceField field) throws InterruptedException {
+		field.prepare(bodies);
+		parallel(numActive, new Range() {
+			@Override
+			public void run(int from, int to) {
+				for (int k = from; k < to; k++) {
+					fx[active[k]] = 0.0;
+					fy[active[k]] = 0.0;
+				}
+				field.apply(bodies, active, from, to, fx, fy);
+				for (int k = from; k < to; k++) {
+					int i = active[k];
+					bodies.accelerate(i, fx[i], fy[i]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns how many fine steps the last advance was divided into.
+	 */
+	public int lastSteps() {
+		return lastSteps;
+	}
+
+	/**
+	 * Returns how many body force evaluations the last advance performed.
+	 */
+	public long lastEvaluations() {
+		return lastEvaluations;
+	}
+
+	/**
+	 * Returns how many body force evaluations the last advance saved compared to forcing every body every
+	 * fine step.
+	 */
+	public long lastSaved() {
+		return lastSaved;
+	}
+
+	/**
+	 * Finds the longest time a body can be left alone without moving further than the maximum move, given its
+	 * current speed and acceleration.
+	 * @param bodies the store of bodies
+	 * @param i the index of the body
+	 * @return the longest time step for the body
+	 */
+	private double maxStep(BodyStore bodies, int i) {
+		return maxStep(bodies, i, maxMove);
+	}
+
+	/**
+	 * Finds the longest time a body can be left alone without moving further than a maximum move, given its
+	 * current speed and acceleration.
+	 * @param bodies the store of bodies
+	 * @param i the index of the body
+	 * @param maxMove the maximum distance the body may move
+	 * @return the longest time step for the body
+	 */
+	static double maxStep(BodyStore bodies, int i, double maxMove) {
+		double speed = bodies.speed(i);
+		double ax = bodies.ax(i);
+		double ay = bodies.ay(i);
+		double acc = Math.sqrt(ax * ax + ay * ay);
+		return 2.0 * maxMove / (speed + Math.sqrt(speed * speed + 2.0 * acc * maxMove));
+	}
+
+	/**
+	 * Finds the longest block of fine steps for a body that keeps it within the maximum move and is aligned
+	 * with the current fine step.
+	 * @param bodies the store of bodies
+	 * @param i the index of the body
+	 * @param dt the length of a fine step
+	 * @param numSteps the number of fine steps in the advance
+	 * @param step the current fine step
+	 * @return the number of fine steps in the block
+	 */
+	private int block(BodyStore bodies, int i, double dt, int numSteps, int step) {
+		double maxStep = maxStep(bodies, i);
+		int block = numSteps;
+		while (block > 1 && (block * dt > maxStep || step % block != 0)) {
+			block /= 2;
+		}
+		return block;
+	}
+
+	/**
+	 * Splits a range of indices into tasks and runs them on the executor, waiting for them all to finish.
+	 * @param n the size of the range
+	 * @param range the work to do for each part of the range
+	 */
+	private void parallel(int n, final Range range) throws InterruptedException {
+		int tasks = Math.max(1, Math.min(numTasks, n));
+		final CountDownLatch latch = new CountDownLatch(tasks);
+		for (int t = 0; t < tasks; t++) {
+			final int from = (int) ((long) n * t / tasks);
+			final int to = (int) ((long) n * (t + 1) / tasks);
+			exec.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						range.run(from, to);
+					} finally {
+						latch.countDown();
+					}
+				}
+			});
+		}
+		latch.await();
+	}
+
+	/**
+	 * The forces acting on the bodies being integrated.
+	 */
+	public interface ForceField extends BatchForce {
+		/**
+		 * Called once before each round of force evaluations, after bodies have moved.
+		 * @param bodies the store of bodies
+		 */
+		void prepare(BodyStore bodies);
+	}
+
+	/**
+	 * A piece of work over a range of indices.
+	 */
+	private interface Range {
+		void run(int from, int to);
+	}
+}
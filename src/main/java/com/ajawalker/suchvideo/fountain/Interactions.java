@@ -0,0 +1,48 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * Applies pair forces between each body and its neighbors within the cutoff.
+ */
+public class Interactions implements BatchForce {
+	private final NeighborList neighbors;
+	private final PairForce[] forces;
+
+	/**
+	 * Creates new interactions.
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param forces the pair forces acting between neighbors
+	 */
+	public Interactions(NeighborList neighbors, PairForce... forces) {
+		this.neighbors = neighbors;
+		this.forces = forces;
+	}
+
+	@Override
+	public void apply(BodyStore bodies, int[] indices, int from, int to, double[] fx, double[] fy) {
+		double csqr = neighbors.cutoff() * neighbors.cutoff();
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			double x = bodies.x(i);
+			double y = bodies.y(i);
+			double sumx = 0.0;
+			double sumy = 0.0;
+			for (int n = neighbors.start(i); n < neighbors.end(i); n++) {
+				int j = neighbors.neighbor(n);
+				double dx = bodies.x(j) - x;
+				double dy = bodies.y(j) - y;
+				double dsqr = dx * dx + dy * dy;
+				if (dsqr <= csqr) {
+					double length = Math.sqrt(dsqr);
+					double scale = 0.0;
+					for (PairForce force : forces) {
+						scale += force.scale(bodies, i, j, length);
+					}
+					sumx += dx / length * scale;
+					sumy += dy / length * scale;
+				}
+			}
+			fx[i] += sumx;
+			fy[i] += sumy;
+		}
+	}
+}
@@ -1,20 +1,35 @@
 package com.ajawalker.suchvideo.fountain;
 
-public class Magnetism implements Force {
-	private final Body other;
+public class Magnetism implements PairForce {
 	private final double distance;
 	private final double strength;
 
-	public Magnetism(Body other, double distance, double strength) {
-		this.other = other;
+	public Magnetism(double distance, double strength) {
 		this.distance = distance;
 		this.strength = strength;
 	}
 
+	public double distance() {
+		return distance;
+	}
+
+	public double strength() {
+		return strength;
+	}
+
 	@Override
-	public Vector calc(Body body) {
-		Vector to = body.pos().to(other.pos());
-		double scale = -strength * body.charge() * other.charge() / Math.pow(to.length() / distance, 3.0);
-		return to.normalize().scale(scale);
+	public double scale(BodyStore bodies, int i, int j, double length) {
+		return scale(bodies.charge(i), bodies.charge(j), length);
+	}
+
+	@Override
+	public float scale(FloatBodyStore bodies, int i, int j, float length) {
+		float r = (float) distance / length;
+		return (float) -strength * bodies.charge[i] * bodies.charge[j] * r * r * r;
+	}
+
+	private double scale(double charge, double otherCharge, double length) {
+		double r = distance / length;
+		return -strength * charge * otherCharge * r * r * r;
 	}
 }
@@ -0,0 +1,225 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * A Verlet neighbor list for bodies. For each body the list holds every body and anchor within the
+ * interaction cutoff plus a skin distance. Because bodies only move a little between steps, the list stays
+ * valid until some body has moved further than half the skin since the last rebuild, so it only needs to be
+ * rebuilt every so often.
+ * <p>
+ * Lists are only kept for moving bodies, but include anchors; neighbors are stored as their index in the
+ * body store.
+ */
+public class NeighborList {
+	private final double cutoff;
+	private final double skin;
+
+	private int numBodies = -1;
+	private int[] offsets = new int[1];
+	private int[] neighbors = new int[0];
+	private double[] refx = new double[0];
+	private double[] refy = new double[0];
+
+	private long updates = 0;
+	private long rebuilds = 0;
+	private long totalLength = 0;
+
+	/**
+	 * Creates a new, empty neighbor list; it will be built upon the first update.
+	 * @param cutoff the distance beyond which bodies do not interact
+	 * @param skin the extra distance beyond the cutoff to include in the list
+	 */
+	public NeighborList(double cutoff, double skin) {
+		this.cutoff = cutoff;
+		this.skin = skin;
+	}
+
+	/**
+	 * Returns the distance beyond which bodies do not interact.
+	 */
+	public double cutoff() {
+		return cutoff;
+	}
+
+	/**
+	 * Updates the list for the current positions of the bodies, rebuilding it if any body has moved further
+	 * than half the skin distance since the last rebuild or if the number of bodies has changed.
+	 * @param bodies the store of bodies, whose indices must be stable between updates
+	 * @return true if the list was rebuilt, false if not
+	 */
+	public boolean update(BodyStore bodies) {
+		updates++;
+		if (bodies.moving() == numBodies) {
+			double limit = skin * skin / 4.0;
+			boolean valid = true;
+			for (int i = 0; i < numBodies && valid; i++) {
+				double dx = bodies.x(i) - refx[i];
+				double dy = bodies.y(i) - refy[i];
+				valid = dx * dx + dy * dy <= limit;
+			}
+			if (valid) {
+				return false;
+			}
+		}
+		rebuild(bodies);
+		return true;
+	}
+
+	/**
+	 * Forces the list to be rebuilt upon the next update, e.g. because the bodies have been reordered.
+	 */
+	public void invalidate() {
+		numBodies = -1;
+	}
+
+	/**
+	 * Returns the index into the neighbor array at which the neighbors of a body start.
+	 * @param i the index of the body
+	 */
+	public int start(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * Returns the index into the neighbor array at which the neighbors of a body end (exclusive).
+	 * @param i the index of the body
+	 */
+	public int end(int i) {
+		return offsets[i + 1];
+	}
+
+	/**
+	 * Returns the neighbor index stored at the specified position in the neighbor array.
+	 * @param k the position in the neighbor array
+	 */
+	public int neighbor(int k) {
+		return neighbors[k];
+	}
+
+	/**
+	 * Returns the neighbor array itself, for kernels which gather many neighbors at once. Only the positions
+	 * between {@link #start(int)} and {@link #end(int)} of each body are meaningful, and the array is replaced
+	 * whenever the list grows.
+	 */
+	int[] neighborArray() {
+		return neighbors;
+	}
+
+	/**
+	 * Returns how many neighbors are currently listed, over all bodies.
+	 */
+	public int size() {
+		return numBodies <= 0 ? 0 : offsets[numBodies];
+	}
+
+	/**
+	 * Returns how many times the list has been updated.
+	 */
+	public long updates() {
+		return updates;
+	}
+
+	/**
+	 * Returns how many times the list has been rebuilt.
+	 */
+	public long rebuilds() {
+		return rebuilds;
+	}
+
+	/**
+	 * Returns the fraction of updates which required a rebuild.
+	 */
+	public double rebuildFrequency() {
+		return updates == 0 ? 0.0 : (double) rebuilds / updates;
+	}
+
+	/**
+	 * Returns the average number of neighbors per body over all rebuilds.
+	 */
+	public double averageLength() {
+		return rebuilds == 0 || numBodies <= 0 ? 0.0 : (double) totalLength / (rebuilds * numBodies);
+	}
+
+	/**
+	 * Rebuilds the list by binning all bodies and anchors into cells as large as the list radius and then
+	 * checking only the cells surrounding each body.
+	 * @param bodies the store of bodies
+	 */
+	private void rebuild(BodyStore bodies) {
+		numBodies = bodies.moving();
+		int total = bodies.size();
+		double[] xs = new double[total];
+		double[] ys = new double[total];
+		for (int i = 0; i < total; i++) {
+			xs[i] = bodies.x(i);
+			ys[i] = bodies.y(i);
+		}
+
+		// bin everything into cells using a counting sort
+		double size = cutoff + skin;
+		double minx = Double.POSITIVE_INFINITY;
+		double miny = Double.POSITIVE_INFINITY;
+		double maxx = Double.NEGATIVE_INFINITY;
+		double maxy = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < total; i++) {
+			minx = Math.min(minx, xs[i]);
+			miny = Math.min(miny, ys[i]);
+			maxx = Math.max(maxx, xs[i]);
+			maxy = Math.max(maxy, ys[i]);
+		}
+		int resx = Math.max(1, (int) ((maxx - minx) / size) + 1);
+		int resy = Math.max(1, (int) ((maxy - miny) / size) + 1);
+		int[] cellOf = new int[total];
+		int[] cellStart = new int[resx * resy + 1];
+		for (int i = 0; i < total; i++) {
+			int cx = (int) ((xs[i] - minx) / size);
+			int cy = (int) ((ys[i] - miny) / size);
+			cellOf[i] = cx * resy + cy;
+			cellStart[cellOf[i] + 1]++;
+		}
+		for (int c = 0; c < resx * resy; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		int[] fill = new int[resx * resy];
+		int[] items = new int[total];
+		for (int i = 0; i < total; i++) {
+			items[cellStart[cellOf[i]] + fill[cellOf[i]]++] = i;
+		}
+
+		// gather neighbors of each body from the surrounding cells
+		double rsqr = size * size;
+		if (offsets.length != numBodies + 1) {
+			offsets = new int[numBodies + 1];
+			refx = new double[numBodies];
+			refy = new double[numBodies];
+		}
+		int count = 0;
+		for (int i = 0; i < numBodies; i++) {
+			offsets[i] = count;
+			refx[i] = xs[i];
+			refy[i] = ys[i];
+			int cx = cellOf[i] / resy;
+			int cy = cellOf[i] % resy;
+			for (int nx = Math.max(0, cx - 1); nx <= Math.min(resx - 1, cx + 1); nx++) {
+				for (int ny = Math.max(0, cy - 1); ny <= Math.min(resy - 1, cy + 1); ny++) {
+					int cell = nx * resy + ny;
+					for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+						int j = items[k];
+						double dx = xs[j] - xs[i];
+						double dy = ys[j] - ys[i];
+						if (j != i && dx * dx + dy * dy <= rsqr) {
+							if (count == neighbors.length) {
+								int[] grown = new int[Math.max(16, count * 2)];
+								System.arraycopy(neighbors, 0, grown, 0, count);
+								neighbors = grown;
+							}
+							neighbors[count++] = j;
+						}
+					}
+				}
+			}
+		}
+		offsets[numBodies] = count;
+		rebuilds++;
+		totalLength += count;
+	}
+}
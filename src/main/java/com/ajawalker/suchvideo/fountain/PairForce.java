@@ -0,0 +1,26 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * A force between a pair of bodies which acts along the line between them. Pair forces are applied in
+ * batches by {@link Interactions} or {@link FloatInteractions}, which work out the distance between each pair
+ * once for all of them.
+ */
+public interface PairForce {
+	/**
+	 * Calculates the magnitude of the force on one body towards another; negative values push it away.
+	 * @param bodies the store of bodies
+	 * @param i the index of the body the force acts on
+	 * @param j the index of the other body
+	 * @param length the distance between the bodies
+	 */
+	double scale(BodyStore bodies, int i, int j, double length);
+
+	/**
+	 * Calculates the magnitude of the force on one body towards another in single precision.
+	 * @param bodies the store of bodies
+	 * @param i the index of the body the force acts on
+	 * @param j the index of the other body
+	 * @param length the distance between the bodies
+	 */
+	float scale(FloatBodyStore bodies, int i, int j, float length);
+}
@@ -0,0 +1,34 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * Picks the kernel which applies magnetism and repulsion between neighboring bodies. This is the plain Java
+ * version, which always uses the scalar kernels; a multi-release jar replaces it on Java 17 and later with a
+ * version that uses the Vector API when the {@code jdk.incubator.vector} module is available.
+ */
+public class PairKernels {
+	/**
+	 * Creates the kernel for the provided precision.
+	 * @param precision the precision the bodies are stored in
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param magnetism the magnetism between bodies
+	 * @param repulsion the repulsion between bodies
+	 * @return the kernel
+	 */
+	public static BatchForce create(Precision precision, NeighborList neighbors, Magnetism magnetism, Repulsion repulsion) {
+		return scalar(precision, neighbors, magnetism, repulsion);
+	}
+
+	/**
+	 * Creates the scalar kernel for the provided precision, which works on any JVM.
+	 * @param precision the precision the bodies are stored in
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param magnetism the magnetism between bodies
+	 * @param repulsion the repulsion between bodies
+	 * @return the kernel
+	 */
+	public static BatchForce scalar(Precision precision, NeighborList neighbors, Magnetism magnetism, Repulsion repulsion) {
+		return precision == Precision.FLOAT
+				? new FloatInteractions(neighbors, magnetism, repulsion)
+				: new Interactions(neighbors, magnetism, repulsion);
+	}
+}
@@ -0,0 +1,17 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * The floating point precision the fountain is simulated in.
+ */
+public enum Precision {
+	/**
+	 * All body state is kept in doubles.
+	 */
+	DOUBLE,
+
+	/**
+	 * All body state is kept in floats, halving the memory touched by passes over bodies; pair forces on each
+	 * body are summed up in floats too, and only the total is added to the forces in doubles.
+	 */
+	FLOAT
+}
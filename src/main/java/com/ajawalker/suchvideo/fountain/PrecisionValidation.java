@@ -0,0 +1,60 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.ajawalker.suchvideo.fountain.World.*;
+
+/**
+ * Runs the fountain in double and single precision side by side from the same starting state and reports how
+ * far apart the bodies drift, frame by frame, as CSV. The simulation is chaotic so some divergence is
+ * expected; what matters is whether it stays small enough not to change how the fountain looks.
+ * <p>
+ * Takes the number of frames to run and the random seed as optional arguments.
+ */
+public class PrecisionValidation {
+	public static void main(String[] args) throws InterruptedException {
+		int numFrames = args.length > 0 ? Integer.parseInt(args[0]) : 240;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+
+		ExecutorService exec = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		int numTasks = Runtime.getRuntime().availableProcessors() * 4;
+		Simulation reference = new Simulation(Precision.DOUBLE, new Random(seed), NUM_BODIES, WIDTH, HEIGHT, exec, numTasks);
+		Simulation single = new Simulation(Precision.FLOAT, new Random(seed), NUM_BODIES, WIDTH, HEIGHT, exec, numTasks);
+
+		System.out.println("frame,mean_divergence,rms_divergence,max_divergence,double_ms,float_ms");
+		for (int frame = 1; frame <= numFrames; frame++) {
+			long start = System.nanoTime();
+			reference.advance();
+			long middle = System.nanoTime();
+			single.advance();
+			long end = System.nanoTime();
+
+			// the stores may have sorted their bodies differently, so compare
+			// snapshots, which keep them in their original order
+			int moving = reference.bodies().moving();
+			Snapshot a = reference.snapshot();
+			Snapshot b = single.snapshot();
+			double sum = 0.0;
+			double sumSqr = 0.0;
+			double max = 0.0;
+			for (int i = 0; i < moving; i++) {
+				double dx = a.x(i) - b.x(i);
+				double dy = a.y(i) - b.y(i);
+				double d = Math.sqrt(dx * dx + dy * dy);
+				sum += d;
+				sumSqr += d * d;
+				max = Math.max(max, d);
+			}
+			System.out.format("%d,%.6f,%.6f,%.6f,%.1f,%.1f%n",
+					frame,
+					sum / moving,
+					Math.sqrt(sumSqr / moving),
+					max,
+					(middle - start) / 1.0e6,
+					(end - middle) / 1.0e6);
+		}
+		exec.shutdown();
+	}
+}
@@ -0,0 +1,232 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Draws the fountain straight into an image's pixel array. Each distinct look of a body, i.e. each
+ * combination of charge and mass, is drawn once into a sprite with Java2D, and sprites are then copied into
+ * the frame wherever they are needed. The frame is split into horizontal bands which are drawn in parallel,
+ * each band only touching its own rows, so the result is the same as drawing everything in order.
+ */
+public class Rasterizer {
+	private final int width;
+	private final int height;
+	private final ExecutorService exec;
+	private final int numBands;
+
+	private final Map<String, Sprite> atlas = new HashMap<>();
+	private Sprite[] bodySprites = new Sprite[0];
+	private Sprite heatSprite = null;
+
+	/**
+	 * Creates a new rasterizer.
+	 * @param width the width of the frames to draw
+	 * @param height the height of the frames to draw
+	 * @param exec the executor to draw bands on
+	 * @param numBands how many horizontal bands to split frames into
+	 */
+	public Rasterizer(int width, int height, ExecutorService exec, int numBands) {
+		this.width = width;
+		this.height = height;
+		this.exec = exec;
+		this.numBands = numBands;
+	}
+
+	/**
+	 * Draws a frame of the fountain.
+	 * @param image the image to draw to, which must be of type {@link BufferedImage#TYPE_INT_RGB}
+	 * @param heat the accelerator
+	 * @param bodies a snapshot of the bodies and anchors, whose looks must not change between frames
+	 */
+	public void draw(BufferedImage image, Accelerator heat, Snapshot bodies) throws InterruptedException {
+		final int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		// work out which sprite each thing uses just once
+		if (heatSprite == null) {
+			heatSprite = disc(Accelerator.COLOR, heat.radius());
+		}
+		if (bodySprites.length != bodies.size()) {
+			bodySprites = sprites(bodies);
+		}
+
+		// where everything goes in this frame
+		final int[] heatAt = place(heat.pos(), heatSprite);
+		final int[] bodiesAt = places(bodies, bodySprites);
+
+		// draw each band in parallel
+		final CountDownLatch latch = new CountDownLatch(numBands);
+		for (int band = 0; band < numBands; band++) {
+			final int top = height * band / numBands;
+			final int bottom = height * (band + 1) / numBands;
+			exec.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Arrays.fill(raster, top * width, bottom * width, 0);
+						blit(raster, top, bottom, new Sprite[]{heatSprite}, heatAt);
+						blit(raster, top, bottom, bodySprites, bodiesAt);
+					} finally {
+						latch.countDown();
+					}
+				}
+			});
+		}
+		latch.await();
+	}
+
+	/**
+	 * Looks up the sprites for some bodies, drawing any that haven't been drawn yet.
+	 * @param bodies a snapshot of the bodies
+	 * @return the sprite of each body
+	 */
+	private Sprite[] sprites(Snapshot bodies) {
+		Sprite[] sprites = new Sprite[bodies.size()];
+		for (int i = 0; i < sprites.length; i++) {
+			String key = bodies.charge(i) + ":" + bodies.mass(i);
+			Sprite sprite = atlas.get(key);
+			if (sprite == null) {
+				sprite = rings(Body.color(bodies.charge(i)), Body.drawRadius(bodies.mass(i)));
+				atlas.put(key, sprite);
+			}
+			sprites[i] = sprite;
+		}
+		return sprites;
+	}
+
+	/**
+	 * Works out where the top left corners of sprites go in the frame.
+	 * @param bodies a snapshot of the bodies
+	 * @param sprites the sprite of each body
+	 * @return the x and y frame coordinates of each sprite's top left corner, one after the other
+	 */
+	private int[] places(Snapshot bodies, Sprite[] sprites) {
+		int[] places = new int[bodies.size() * 2];
+		for (int i = 0; i < bodies.size(); i++) {
+			places[i * 2] = (int) Math.round(bodies.x(i)) - sprites[i].center;
+			places[i * 2 + 1] = height - (int) Math.round(bodies.y(i)) - sprites[i].center;
+		}
+		return places;
+	}
+
+	/**
+	 * Works out where the top left corner of a sprite goes in the frame.
+	 * @param pos the world position of the sprite's center
+	 * @param sprite the sprite
+	 * @return the x and y frame coordinates of the sprite's top left corner
+	 */
+	private int[] place(Vector pos, Sprite sprite) {
+		return new int[]{
+				(int) Math.round(pos.x()) - sprite.center,
+				height - (int) Math.round(pos.y()) - sprite.center
+		};
+	}
+
+	/**
+	 * Copies the visible pixels of sprites into the rows of the frame within a band.
+	 * @param raster the pixels of the frame
+	 * @param top the first row of the band
+	 * @param bottom the row after the last row of the band
+	 * @param sprites the sprites to copy
+	 * @param places where the top left corner of each sprite goes, x and y one after the other
+	 */
+	private void blit(int[] raster, int top, int bottom, Sprite[] sprites, int[] places) {
+		for (int i = 0; i < sprites.length; i++) {
+			Sprite sprite = sprites[i];
+			int left = places[i * 2];
+			int y0 = Math.max(top, places[i * 2 + 1]);
+			int y1 = Math.min(bottom, places[i * 2 + 1] + sprite.size);
+			int x0 = Math.max(0, left);
+			int x1 = Math.min(width, left + sprite.size);
+			for (int y = y0; y < y1; y++) {
+				int row = (y - places[i * 2 + 1]) * sprite.size - left;
+				for (int x = x0; x < x1; x++) {
+					int pixel = sprite.pixels[row + x];
+					if (pixel != 0) {
+						raster[y * width + x] = pixel;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws the rings of a body into a sprite. The y-axis is flipped in the frame, so vertical coordinates are
+	 * rounded the other way to land on the same pixels as drawing the body directly would.
+	 * @param color the color of the rings
+	 * @param outerRadius the radius of the outermost ring
+	 * @return the sprite
+	 */
+	private static Sprite rings(Color color, double outerRadius) {
+		Sprite sprite = new Sprite(outerRadius);
+		Graphics graphics = sprite.image.getGraphics();
+		graphics.setColor(color);
+		for (double radius = outerRadius; radius > 1.0; radius -= 3.0) {
+			graphics.drawArc(
+					(int) (sprite.center - radius),
+					sprite.center - (int) radius,
+					(int) (radius * 2.0),
+					(int) (radius * 2.0),
+					0,
+					360);
+		}
+		return sprite.done();
+	}
+
+	/**
+	 * Draws a filled disc into a sprite.
+	 * @param color the color of the disc
+	 * @param radius the radius of the disc
+	 * @return the sprite
+	 */
+	private static Sprite disc(Color color, double radius) {
+		Sprite sprite = new Sprite(radius);
+		Graphics graphics = sprite.image.getGraphics();
+		graphics.setColor(color);
+		graphics.fillArc(
+				(int) (sprite.center - radius),
+				sprite.center - (int) radius,
+				(int) (radius * 2),
+				(int) (radius * 2),
+				0,
+				360);
+		return sprite.done();
+	}
+
+	/**
+	 * A square image of something drawn around its center. Pixels which weren't drawn are zero; drawn
+	 * pixels are opaque RGB with the alpha bits set, so they are never zero even when black.
+	 */
+	private static class Sprite {
+		private final int size;
+		private final int center;
+		private BufferedImage image;
+		private int[] pixels;
+
+		/**
+		 * Creates a blank sprite big enough for something of the provided radius.
+		 * @param radius the radius of the thing to be drawn
+		 */
+		private Sprite(double radius) {
+			center = (int) Math.ceil(radius) + 1;
+			size = center * 2 + 1;
+			image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		}
+
+		/**
+		 * Finishes drawing the sprite, grabbing its pixels.
+		 * @return this sprite
+		 */
+		private Sprite done() {
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			image = null;
+			return this;
+		}
+	}
+}
@@ -1,20 +1,37 @@
 package com.ajawalker.suchvideo.fountain;
 
-public class Repulsion implements Force {
-	private final Body other;
+public class Repulsion implements PairForce {
 	private final double distance;
 	private final double strength;
 
-	public Repulsion(Body other, double distance, double strength) {
-		this.other = other;
+	public Repulsion(double distance, double strength) {
 		this.distance = distance;
 		this.strength = strength;
 	}
 
+	public double distance() {
+		return distance;
+	}
+
+	public double strength() {
+		return strength;
+	}
+
 	@Override
-	public Vector calc(Body body) {
-		Vector to = body.pos().to(other.pos());
-		double scale = -strength / Math.pow(to.length() / distance, 4.0);
-		return to.normalize().scale(scale);
+	public double scale(BodyStore bodies, int i, int j, double length) {
+		return scale(length);
+	}
+
+	@Override
+	public float scale(FloatBodyStore bodies, int i, int j, float length) {
+		float r = (float) distance / length;
+		float rsqr = r * r;
+		return (float) -strength * rsqr * rsqr;
+	}
+
+	private double scale(double length) {
+		double r = distance / length;
+		double rsqr = r * r;
+		return -strength * rsqr * rsqr;
 	}
 }
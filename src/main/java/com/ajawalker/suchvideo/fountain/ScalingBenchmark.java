@@ -0,0 +1,136 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.ajawalker.suchvideo.fountain.World.*;
+
+/**
+ * Runs the fountain headless, with no video or viewer, from a fixed seed for a sweep of body counts and
+ * thread counts, and reports how fast it goes as CSV. The world is sized for each body count so that the
+ * bodies fill it about as densely as they fill the normal world, keeping its shape; a few less than asked
+ * for may fit, so the number of bodies actually placed is reported. Each run gets one frame
+ * to warm up before it is timed.
+ * <p>
+ * Pair evaluations are the neighbor list entries visited, i.e. body force evaluations times the average
+ * neighbor list length. The allocation rate is measured per thread, so it is only reported on JVMs which
+ * support and have enabled that, and is -1 otherwise.
+ * <p>
+ * Takes as optional arguments the number of frames to time (default 5), the random seed (default 1), a comma
+ * separated list of body counts (default 1000,10000,100000), a comma separated list of thread counts
+ * (default doubling up to the number of cores), the precision (default double) and a comma separated list
+ * of how many frames pass between sorting bodies along a space-filling curve, zero for never (default 0 and
+ * the world's interval, to compare the two).
+ */
+public class ScalingBenchmark {
+	public static void main(String[] args) throws InterruptedException {
+		int numFrames = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+		int[] bodyCounts = args.length > 2 ? parse(args[2]) : new int[]{1000, 10000, 100000};
+		int[] threadCounts = args.length > 3 ? parse(args[3]) : doubling(Runtime.getRuntime().availableProcessors());
+		Precision precision = args.length > 4 ? Precision.valueOf(args[4].toUpperCase()) : Precision.DOUBLE;
+		int[] resortIntervals = args.length > 5 ? parse(args[5]) : new int[]{0, RESORT_INTERVAL};
+
+		System.out.println("precision,bodies,threads,resort_interval,width,height,frames,frames_per_s,substeps_per_s,pair_evals_per_s,alloc_mb_per_s");
+		// the space each body takes up when the normal world is filled, with a
+		// little to spare so that every body asked for fits
+		double area = 1.05 * WIDTH * HEIGHT / Simulation.spawn(new Random(seed), Integer.MAX_VALUE, WIDTH, HEIGHT).size();
+
+		boolean tracked = allocationTracked();
+		for (int bodyCount : bodyCounts) {
+			double scale = Math.sqrt(bodyCount * area / (WIDTH * HEIGHT));
+			int width = (int) Math.ceil(WIDTH * scale);
+			int height = (int) Math.ceil(HEIGHT * scale);
+
+			for (int threads : threadCounts) {
+				for (int resortInterval : resortIntervals) {
+					ExecutorService exec = Executors.newFixedThreadPool(threads);
+					Simulation sim = new Simulation(precision, new Random(seed), bodyCount, width, height, exec, threads * 4);
+					sim.setResortInterval(resortInterval);
+					sim.advance();
+
+					long substeps = 0;
+					double pairs = 0.0;
+					long allocated = tracked ? -allocatedBytes() : 0;
+					long start = System.nanoTime();
+					for (int frame = 0; frame < numFrames; frame++) {
+						sim.advance();
+						Integrator integrator = sim.integrator();
+						substeps += integrator.lastSteps();
+						pairs += (double) integrator.lastEvaluations() * sim.neighbors().size() / sim.bodies().moving();
+					}
+					double seconds = (System.nanoTime() - start) / 1.0e9;
+					allocated += tracked ? allocatedBytes() : 0;
+					exec.shutdown();
+
+					System.out.format("%s,%d,%d,%d,%d,%d,%d,%.3f,%.1f,%.4g,%.1f%n",
+							precision,
+							sim.bodies().moving(),
+							threads,
+							resortInterval,
+							width,
+							height,
+							numFrames,
+							numFrames / seconds,
+							substeps / seconds,
+							pairs / seconds,
+							tracked ? allocated / seconds / (1024.0 * 1024.0) : -1.0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the JVM can tell how many bytes each thread has allocated, and is doing so.
+	 */
+	private static boolean allocationTracked() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return false;
+		}
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		return allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled();
+	}
+
+	/**
+	 * Finds how many bytes have been allocated by all live threads so far, which may only be asked once
+	 * {@link #allocationTracked()} says the JVM can tell; threads which have died since their ids were taken
+	 * count for nothing.
+	 * @return the number of bytes
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long total = 0;
+		for (long bytes : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			total += Math.max(0, bytes);
+		}
+		return total;
+	}
+
+	private static int[] parse(String list) {
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+	private static int[] doubling(int max) {
+		List<Integer> counts = new ArrayList<>();
+		for (int count = 1; count < max; count *= 2) {
+			counts.add(count);
+		}
+		counts.add(max);
+		int[] values = new int[counts.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = counts.get(i);
+		}
+		return values;
+	}
+}
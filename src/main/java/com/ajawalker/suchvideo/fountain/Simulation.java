@@ -0,0 +1,194 @@
+package com.ajawalker.suchvideo.fountain;
+
+import com.ajawalker.suchvideo.position.PoissonDisk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import static com.ajawalker.suchvideo.fountain.World.*;
+
+/**
+ * The fountain simulation on its own, without drawing or video: a box of anchors with bodies spread out
+ * inside it, an accelerator at the bottom, gravity, drag, and the interactions between neighboring bodies.
+ */
+public class Simulation {
+	private final BodyStore store;
+	private final NeighborList neighbors;
+	private final Accelerator heat;
+	private final Integrator integrator;
+	private final Integrator.ForceField field;
+
+	private int resortInterval = RESORT_INTERVAL;
+	private long frames = 0;
+
+	/**
+	 * Sets up a new simulation.
+	 * @param precision the precision to simulate in
+	 * @param rnd the source of randomness for placing bodies
+	 * @param numBodies the most bodies to place; fewer are placed if no more fit
+	 * @param width the width of the world
+	 * @param height the height of the world
+	 * @param exec the executor to run work on
+	 * @param numTasks how many tasks to split each parallel pass into
+	 */
+	public Simulation(Precision precision, Random rnd, int numBodies, int width, int height, ExecutorService exec, int numTasks) {
+		List<Body> anchors = anchors(width, height);
+		List<Body> bodies = spawn(rnd, numBodies, width, height);
+
+		// keep all bodies, anchors last, in one store that forces can work
+		// through in bulk
+		store = BodyStore.create(precision, bodies, anchors);
+
+		// the accelerator acts locally to accelerate bodies within its radius
+		// in a specific direction
+		heat = heat(width, height);
+
+		// gravity acts globally on all bodies
+		Gravity down = new Gravity(new Vector(0, -GRAVITY_FACTOR));
+
+		// bodies only interact with their neighbors, which we track in a list
+		// that only has to be rebuilt once bodies have moved far enough
+		neighbors = new NeighborList(INTERACTION_CUTOFF, NEIGHBOR_SKIN);
+
+		// the forces acting on each body; neighboring anchors have no charge
+		// so only repel, and the world forces act on everything
+		Magnetism magnetism = new Magnetism(MAGNETISM_DISTANCE, MAGNETISM_STRENGTH);
+		Repulsion repulsion = new Repulsion(REPULSION_DISTANCE, REPULSION_STRENGTH);
+		final BatchForce[] forces = new BatchForce[]{
+				PairKernels.create(precision, neighbors, magnetism, repulsion),
+				new Drag(BODY_DRAG_FACTOR),
+				heat,
+				down
+		};
+		field = new Integrator.ForceField() {
+			@Override
+			public void prepare(BodyStore bodies) {
+				// make sure every body knows who its neighbors are
+				neighbors.update(bodies);
+			}
+
+			@Override
+			public void apply(BodyStore bodies, int[] indices, int from, int to, double[] fx, double[] fy) {
+				for (BatchForce force : forces) {
+					force.apply(bodies, indices, from, to, fx, fy);
+				}
+			}
+		};
+
+		// each body advances with its own time step, which keeps it from
+		// moving further than our MAX_MOVE parameter, so fast bodies don't
+		// force tiny steps on everything else
+		integrator = new Integrator(exec, numTasks, MAX_MOVE);
+	}
+
+	/**
+	 * Creates a perimeter of "anchor" bodies that will keep everything contained.
+	 * @param width the width of the world
+	 * @param height the height of the world
+	 * @return the anchors
+	 */
+	static List<Body> anchors(int width, int height) {
+		List<Body> anchors = new ArrayList<>();
+		for (int x = 0; x <= width / (2 * ANCHOR_RADIUS * BODY_DRAW_RADIUS); x++) {
+			Vector pos = new Vector((2 * x) * ANCHOR_RADIUS * BODY_DRAW_RADIUS, 0);
+			Body body = new Body(pos, 0.0, ANCHOR_MASS);
+			anchors.add(body);
+			pos = new Vector((2 * x) * ANCHOR_RADIUS * BODY_DRAW_RADIUS, height);
+			body = new Body(pos, 0.0, ANCHOR_MASS);
+			anchors.add(body);
+		}
+		for (int y = 1; y < height / (2 * ANCHOR_RADIUS * BODY_DRAW_RADIUS); y++) {
+			Vector pos = new Vector(0, (2 * y) * ANCHOR_RADIUS * BODY_DRAW_RADIUS);
+			Body body = new Body(pos, 0.0, ANCHOR_MASS);
+			anchors.add(body);
+			pos = new Vector(width, (2 * y) * ANCHOR_RADIUS * BODY_DRAW_RADIUS);
+			body = new Body(pos, 0.0, ANCHOR_MASS);
+			anchors.add(body);
+		}
+		return anchors;
+	}
+
+	/**
+	 * Creates our normally interacting bodies, spread evenly and kept at least a minimum distance from each
+	 * other.
+	 * @param rnd the source of randomness for placing bodies
+	 * @param numBodies the most bodies to place; fewer are placed if no more fit
+	 * @param width the width of the world
+	 * @param height the height of the world
+	 * @return the bodies
+	 */
+	static List<Body> spawn(Random rnd, int numBodies, int width, int height) {
+		List<Body> bodies = new ArrayList<>();
+		PoissonDisk spawns = new PoissonDisk(
+				ANCHOR_RADIUS * BODY_DRAW_RADIUS,
+				width - ANCHOR_RADIUS * BODY_DRAW_RADIUS,
+				ANCHOR_RADIUS * BODY_DRAW_RADIUS,
+				height - ANCHOR_RADIUS * BODY_DRAW_RADIUS,
+				MIN_SPAWN_DISTANCE);
+		for (com.ajawalker.suchvideo.position.Vector spawn : spawns.sample(rnd, numBodies)) {
+			Vector pos = new Vector(spawn.x(), spawn.y());
+			Vector vel = new Vector(rnd.nextDouble() * 0.2 - 0.1, rnd.nextDouble() * 0.2 - 0.1);
+			double charge = (rnd.nextInt(5) + 1) * (rnd.nextBoolean() ? -1 : 1);
+			double mass = (rnd.nextInt(5) + 2) * 5;
+			bodies.add(new Body(pos, vel, charge, mass));
+		}
+		return bodies;
+	}
+
+	/**
+	 * Creates the accelerator at the bottom middle of the world, sized to the world.
+	 * @param width the width of the world
+	 * @param height the height of the world
+	 * @return the accelerator
+	 */
+	static Accelerator heat(int width, int height) {
+		return new Accelerator(new Vector(width / 2, 0), (int) (Math.sqrt(width * height) / 8), new Vector(0, ACCELERATOR_FACTOR));
+	}
+
+	/**
+	 * Advances the simulation by one frame.
+	 */
+	public void advance() throws InterruptedException {
+		// bodies wander, so every so often sort them again so that each task
+		// of the integrator gets a compact patch of space
+		if (resortInterval > 0 && frames % resortInterval == 0) {
+			store.sortSpatially();
+			neighbors.invalidate();
+		}
+		frames++;
+		integrator.advance(store, TIME_STEP, field);
+	}
+
+	/**
+	 * Sets how many frames pass between sorting the bodies along a space-filling curve.
+	 * @param frames the number of frames, or zero to never sort them
+	 */
+	public void setResortInterval(int frames) {
+		resortInterval = frames;
+	}
+
+	/**
+	 * Takes a snapshot of the current positions of all bodies, including anchors.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(store);
+	}
+
+	public BodyStore bodies() {
+		return store;
+	}
+
+	public NeighborList neighbors() {
+		return neighbors;
+	}
+
+	public Accelerator heat() {
+		return heat;
+	}
+
+	public Integrator integrator() {
+		return integrator;
+	}
+}
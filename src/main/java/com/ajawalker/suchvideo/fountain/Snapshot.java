@@ -0,0 +1,84 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * An immutable copy of the positions of the bodies in a store at one point in time, along with their charges
+ * and masses.
+ */
+public class Snapshot {
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] charges;
+	private final double[] masses;
+
+	/**
+	 * Takes a snapshot of the current positions of the bodies in a store, including anchors. Bodies are put
+	 * back in the order they were created, however the store has reordered them since.
+	 * @param bodies the store of bodies
+	 */
+	public Snapshot(BodyStore bodies) {
+		xs = new double[bodies.size()];
+		ys = new double[bodies.size()];
+		charges = new double[bodies.size()];
+		masses = new double[bodies.size()];
+		for (int i = 0; i < xs.length; i++) {
+			int id = bodies.id(i);
+			xs[id] = bodies.x(i);
+			ys[id] = bodies.y(i);
+			charges[id] = bodies.charge(i);
+			masses[id] = bodies.mass(i);
+		}
+	}
+
+	/**
+	 * Creates a snapshot from positions that have already been copied; the arrays are kept, not copied again.
+	 * @param xs the x coordinate of each body
+	 * @param ys the y coordinate of each body
+	 * @param charges the charge of each body
+	 * @param masses the mass of each body
+	 */
+	Snapshot(double[] xs, double[] ys, double[] charges, double[] masses) {
+		this.xs = xs;
+		this.ys = ys;
+		this.charges = charges;
+		this.masses = masses;
+	}
+
+	/**
+	 * Returns how many bodies are in this snapshot.
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * Returns the x coordinate of a body when the snapshot was taken.
+	 * @param i the index of the body
+	 */
+	public double x(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a body when the snapshot was taken.
+	 * @param i the index of the body
+	 */
+	public double y(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * Returns the charge of a body.
+	 * @param i the index of the body
+	 */
+	public double charge(int i) {
+		return charges[i];
+	}
+
+	/**
+	 * Returns the mass of a body.
+	 * @param i the index of the body
+	 */
+	public double mass(int i) {
+		return masses[i];
+	}
+}
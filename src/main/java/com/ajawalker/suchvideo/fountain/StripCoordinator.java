@@ -0,0 +1,256 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Random;
+
+import static com.ajawalker.suchvideo.fountain.World.*;
+
+/**
+ * Runs the fountain split into vertical strips, each simulated by its own {@link StripWorker} process, so
+ * that worlds too big for one JVM can be spread over every core of a machine. The coordinator starts the
+ * workers, deals out the bodies by strip, and then keeps every worker on the same substep: all bodies take
+ * the same substeps, which are halved whenever any body anywhere needs it. At the end of each frame the
+ * bodies are gathered back, in the order they were created, for drawing.
+ * <p>
+ * Only double precision is supported, and strips must be at least twice as wide as the interaction cutoff.
+ */
+public class StripCoordinator {
+	private final Process[] workers;
+	private final Socket[] sockets;
+	private final DataInputStream[] ins;
+	private final DataOutputStream[] outs;
+
+	private final int numBodies;
+	private final List<Body> anchors;
+	private final Accelerator heat;
+
+	private double minStep;
+	private int lastSteps = 0;
+	private long lastMigrations = 0;
+
+	/**
+	 * Sets up a new simulation, starting a worker process for each strip.
+	 * @param numStrips how many strips, and so processes, to split the world into
+	 * @param rnd the source of randomness for placing bodies
+	 * @param numBodies the most bodies to place; fewer are placed if no more fit
+	 * @param width the width of the world
+	 * @param height the height of the world
+	 */
+	public StripCoordinator(int numStrips, Random rnd, int numBodies, int width, int height) throws IOException {
+		if (numStrips < 1) {
+			throw new IllegalArgumentException("there must be at least one strip: " + numStrips);
+		}
+		if (width / numStrips < 2 * INTERACTION_CUTOFF) {
+			throw new IllegalArgumentException("strips must be at least " + 2 * INTERACTION_CUTOFF + " wide");
+		}
+
+		// start the workers on the same classpath, and wait for each of them
+		// to call back
+		workers = new Process[numStrips];
+		sockets = new Socket[numStrips];
+		ins = new DataInputStream[numStrips];
+		outs = new DataOutputStream[numStrips];
+		int[] ports = new int[numStrips];
+		try (ServerSocket server = new ServerSocket(0, numStrips, InetAddress.getLoopbackAddress())) {
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			for (int s = 0; s < numStrips; s++) {
+				workers[s] = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						StripWorker.class.getName(), Integer.toString(server.getLocalPort()))
+						.inheritIO()
+						.start();
+			}
+			for (int s = 0; s < numStrips; s++) {
+				sockets[s] = server.accept();
+				sockets[s].setTcpNoDelay(true);
+				ins[s] = new DataInputStream(new BufferedInputStream(sockets[s].getInputStream()));
+				outs[s] = new DataOutputStream(new BufferedOutputStream(sockets[s].getOutputStream()));
+				ports[s] = ins[s].readInt();
+			}
+		}
+
+		// strips are handed out in the order workers called back, and each
+		// worker is told where to find its right neighbor
+		for (int s = 0; s < numStrips; s++) {
+			outs[s].writeInt(s);
+			outs[s].writeInt(numStrips);
+			outs[s].writeInt(width);
+			outs[s].writeInt(height);
+			outs[s].writeInt(s < numStrips - 1 ? ports[s + 1] : -1);
+			outs[s].flush();
+		}
+
+		// everyone gets the anchors, and bodies go to the strip they're in
+		anchors = Simulation.anchors(width, height);
+		List<Body> bodies = Simulation.spawn(rnd, numBodies, width, height);
+		this.numBodies = bodies.size();
+		heat = Simulation.heat(width, height);
+		for (int s = 0; s < numStrips; s++) {
+			double left = s == 0 ? Double.NEGATIVE_INFINITY : (double) width * s / numStrips;
+			double right = s == numStrips - 1 ? Double.POSITIVE_INFINITY : (double) width * (s + 1) / numStrips;
+			DataOutputStream out = outs[s];
+			out.writeInt(anchors.size());
+			for (Body anchor : anchors) {
+				out.writeDouble(anchor.pos().x());
+				out.writeDouble(anchor.pos().y());
+				out.writeDouble(anchor.mass());
+			}
+			int count = 0;
+			for (Body body : bodies) {
+				if (body.pos().x() >= left && body.pos().x() < right) {
+					count++;
+				}
+			}
+			out.writeInt(count);
+			for (int id = 0; id < bodies.size(); id++) {
+				Body body = bodies.get(id);
+				if (body.pos().x() >= left && body.pos().x() < right) {
+					out.writeInt(id);
+					out.writeDouble(body.pos().x());
+					out.writeDouble(body.pos().y());
+					out.writeDouble(body.vel().x());
+					out.writeDouble(body.vel().y());
+					out.writeDouble(body.charge());
+					out.writeDouble(body.mass());
+				}
+			}
+			out.flush();
+		}
+
+		// the workers then work out their initial forces and tell us how long
+		// the first substep may be
+		gather();
+	}
+
+	/**
+	 * Advances the simulation by one frame.
+	 */
+	public void advance() throws IOException {
+		// find how many substeps we need for the fastest body
+		int numSteps = 1;
+		while (numSteps < Integrator.MAX_STEPS && TIME_STEP / numSteps > minStep) {
+			numSteps *= 2;
+		}
+		double dt = TIME_STEP / numSteps;
+
+		long migrations = 0;
+		int step = 0;
+		while (step < numSteps) {
+			step++;
+			broadcast(dt);
+			migrations += gather();
+
+			// if a body has sped up so much that even a single substep is too
+			// long for it, split every remaining substep in two
+			if (step < numSteps) {
+				while (numSteps < Integrator.MAX_STEPS && dt > minStep) {
+					numSteps *= 2;
+					step *= 2;
+					dt /= 2.0;
+				}
+			}
+		}
+
+		lastSteps = numSteps;
+		lastMigrations = migrations;
+	}
+
+	/**
+	 * Gathers the current positions of all bodies from the workers, with the anchors after them.
+	 */
+	public Snapshot snapshot() throws IOException {
+		int size = numBodies + anchors.size();
+		double[] xs = new double[size];
+		double[] ys = new double[size];
+		double[] charges = new double[size];
+		double[] masses = new double[size];
+		broadcast(0.0);
+		for (DataInputStream in : ins) {
+			int count = in.readInt();
+			for (int b = 0; b < count; b++) {
+				int id = in.readInt();
+				xs[id] = in.readDouble();
+				ys[id] = in.readDouble();
+				charges[id] = in.readDouble();
+				masses[id] = in.readDouble();
+			}
+		}
+		for (int a = 0; a < anchors.size(); a++) {
+			Body anchor = anchors.get(a);
+			xs[numBodies + a] = anchor.pos().x();
+			ys[numBodies + a] = anchor.pos().y();
+			charges[numBodies + a] = anchor.charge();
+			masses[numBodies + a] = anchor.mass();
+		}
+		return new Snapshot(xs, ys, charges, masses);
+	}
+
+	/**
+	 * Stops all the workers and waits for them to exit.
+	 */
+	public void close() throws IOException, InterruptedException {
+		broadcast(-1.0);
+		for (int s = 0; s < workers.length; s++) {
+			workers[s].waitFor();
+			sockets[s].close();
+		}
+	}
+
+	/**
+	 * Returns how many bodies are being simulated, not counting anchors.
+	 */
+	public int numBodies() {
+		return numBodies;
+	}
+
+	public Accelerator heat() {
+		return heat;
+	}
+
+	/**
+	 * Returns how many substeps the last advance was divided into.
+	 */
+	public int lastSteps() {
+		return lastSteps;
+	}
+
+	/**
+	 * Returns how many times a body moved from one strip to another during the last advance.
+	 */
+	public long lastMigrations() {
+		return lastMigrations;
+	}
+
+	/**
+	 * Sends the same order to every worker.
+	 * @param dt the length of the next substep, zero to gather bodies or negative to stop
+	 */
+	private void broadcast(double dt) throws IOException {
+		for (DataOutputStream out : outs) {
+			out.writeDouble(dt);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Waits for every worker to finish its substep, finding the longest next substep any body can take.
+	 * @return how many bodies moved between strips
+	 */
+	private long gather() throws IOException {
+		minStep = Double.POSITIVE_INFINITY;
+		long migrations = 0;
+		for (DataInputStream in : ins) {
+			minStep = Math.min(minStep, in.readDouble());
+			migrations += in.readInt();
+		}
+		return migrations;
+	}
+}
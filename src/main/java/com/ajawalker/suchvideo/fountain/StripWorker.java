@@ -0,0 +1,430 @@
+package com.ajawalker.suchvideo.fountain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+import static com.ajawalker.suchvideo.fountain.World.*;
+
+/**
+ * A worker process which owns the bodies within one vertical strip of the world, started by a
+ * {@link StripCoordinator}. Every substep the worker moves its bodies, hands the ones that have crossed into a
+ * neighboring strip over to the worker that owns it, and sends the bodies near each edge to the neighbor on
+ * that side as a halo, so that both sides see every body within the interaction cutoff. Forces are then
+ * worked out for the bodies it owns against its own bodies, the halos and the nearby anchors.
+ * <p>
+ * Neighboring workers talk over localhost sockets; the coordinator tells every worker how long each substep
+ * is, hears back how long the next one may be, and gathers the bodies at the end of each frame.
+ */
+public class StripWorker {
+	private final DataInputStream coordinatorIn;
+	private final DataOutputStream coordinatorOut;
+	private final int strip;
+	private final double left;
+	private final double right;
+
+	private DataInputStream leftIn = null;
+	private DataOutputStream leftOut = null;
+	private DataInputStream rightIn = null;
+	private DataOutputStream rightOut = null;
+
+	private final DoubleBodyStore anchors;
+	private final Magnetism magnetism = new Magnetism(MAGNETISM_DISTANCE, MAGNETISM_STRENGTH);
+	private final Repulsion repulsion = new Repulsion(REPULSION_DISTANCE, REPULSION_STRENGTH);
+	private final NeighborList neighbors = new NeighborList(INTERACTION_CUTOFF, 0.0);
+	private final BatchForce interactions = PairKernels.create(Precision.DOUBLE, neighbors, magnetism, repulsion);
+	private final BatchForce[] forces;
+
+	// bodies owned by this worker come first, then the halos, then anchors;
+	// the store is laid out afresh every substep into whichever of the two
+	// stores isn't current, and they're swapped
+	private DoubleBodyStore store = new DoubleBodyStore(0, 0);
+	private DoubleBodyStore spare = new DoubleBodyStore(0, 0);
+	private int[] ids = new int[0];
+	private int[] indices = new int[0];
+	private double[] fx = new double[0];
+	private double[] fy = new double[0];
+
+	// bodies on their way to each neighbor: the halo are copies, the migrants leave
+	private final Outbox toLeft = new Outbox();
+	private final Outbox toRight = new Outbox();
+	private final Outbox stay = new Outbox();
+	private final Outbox fromLeft = new Outbox();
+	private final Outbox fromRight = new Outbox();
+	private final Outbox[] arrivals = new Outbox[]{stay, fromLeft, fromRight};
+	private int migrated = 0;
+
+	public static void main(String[] args) throws IOException {
+		Socket coordinator = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+		coordinator.setTcpNoDelay(true);
+		new StripWorker(coordinator).run();
+	}
+
+	/**
+	 * Sets up a worker: receives its strip from the coordinator, connects to its neighbors and receives its
+	 * initial bodies.
+	 * @param coordinator the connection to the coordinator
+	 */
+	private StripWorker(Socket coordinator) throws IOException {
+		coordinatorIn = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+		coordinatorOut = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+
+		// tell the coordinator where our left neighbor can reach us, then
+		// connect to our right neighbor once it has told us where it is
+		ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		coordinatorOut.writeInt(server.getLocalPort());
+		coordinatorOut.flush();
+		strip = coordinatorIn.readInt();
+		int numStrips = coordinatorIn.readInt();
+		int width = coordinatorIn.readInt();
+		int height = coordinatorIn.readInt();
+		int rightPort = coordinatorIn.readInt();
+		left = strip == 0 ? Double.NEGATIVE_INFINITY : (double) width * strip / numStrips;
+		right = strip == numStrips - 1 ? Double.POSITIVE_INFINITY : (double) width * (strip + 1) / numStrips;
+		if (strip < numStrips - 1) {
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), rightPort);
+			socket.setTcpNoDelay(true);
+			rightIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			rightOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+		if (strip > 0) {
+			Socket socket = server.accept();
+			socket.setTcpNoDelay(true);
+			leftIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			leftOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+		server.close();
+
+		// anchors never move, so we only keep the ones close enough to matter
+		int numAnchors = coordinatorIn.readInt();
+		double[] anchorData = new double[numAnchors * 3];
+		int kept = 0;
+		for (int a = 0; a < numAnchors; a++) {
+			double x = coordinatorIn.readDouble();
+			double y = coordinatorIn.readDouble();
+			double mass = coordinatorIn.readDouble();
+			if (x >= left - INTERACTION_CUTOFF && x < right + INTERACTION_CUTOFF) {
+				anchorData[kept * 3] = x;
+				anchorData[kept * 3 + 1] = y;
+				anchorData[kept * 3 + 2] = mass;
+				kept++;
+			}
+		}
+		anchors = new DoubleBodyStore(0, kept);
+		for (int a = 0; a < kept; a++) {
+			anchors.x[a] = anchorData[a * 3];
+			anchors.y[a] = anchorData[a * 3 + 1];
+			anchors.mass[a] = anchorData[a * 3 + 2];
+		}
+
+		int numBodies = coordinatorIn.readInt();
+		for (int b = 0; b < numBodies; b++) {
+			stay.migrate(coordinatorIn.readInt(), coordinatorIn.readDouble(), coordinatorIn.readDouble(),
+					coordinatorIn.readDouble(), coordinatorIn.readDouble(),
+					coordinatorIn.readDouble(), coordinatorIn.readDouble());
+		}
+		rebuild();
+
+		forces = new BatchForce[]{
+				new Drag(BODY_DRAG_FACTOR),
+				Simulation.heat(width, height),
+				new Gravity(new Vector(0, -GRAVITY_FACTOR))
+		};
+	}
+
+	/**
+	 * Follows the coordinator's orders until told to stop: a positive time is a substep of that length, zero
+	 * means the frame is over and the bodies should be sent back, and a negative time means stop.
+	 */
+	private void run() throws IOException {
+		// bodies need their accelerations before their first half kick
+		exchange();
+		force();
+		reply();
+
+		while (true) {
+			double dt = coordinatorIn.readDouble();
+			if (dt > 0.0) {
+				step(dt);
+				reply();
+			} else if (dt == 0.0) {
+				send();
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Advances the owned bodies by one kick-drift-kick substep.
+	 * @param dt the length of the substep
+	 */
+	private void step(double dt) throws IOException {
+		int owned = store.moving();
+		for (int i = 0; i < owned; i++) {
+			store.kick(i, dt / 2.0);
+		}
+		store.drift(0, owned, dt);
+		exchange();
+		force();
+		for (int i = 0; i < store.moving(); i++) {
+			store.kick(i, dt / 2.0);
+		}
+	}
+
+	/**
+	 * Swaps migrants and halos with both neighbors and rebuilds the store from what's left plus what arrived.
+	 * Everything goes rightward first and then leftward; as the strips form a line rather than a ring, the
+	 * rightmost worker only ever reads in the first pass, so nobody can be stuck waiting on a full socket.
+	 */
+	private void exchange() throws IOException {
+		stay.clear();
+		toLeft.clear();
+		toRight.clear();
+		migrated = 0;
+		for (int i = 0; i < store.moving(); i++) {
+			double x = store.x[i];
+			if (x < left || x >= right) {
+				// a migrant is still right by the edge, and its new owner's halo
+				// is made before it arrives, so we keep it as a halo ourselves
+				Outbox to = x < left ? toLeft : toRight;
+				to.migrate(ids[i], x, store.y[i], store.vx[i], store.vy[i], store.charge[i], store.mass[i]);
+				stay.halo(x, store.y[i], store.charge[i], store.mass[i]);
+				migrated++;
+			} else {
+				stay.migrate(ids[i], x, store.y[i], store.vx[i], store.vy[i], store.charge[i], store.mass[i]);
+				if (x < left + INTERACTION_CUTOFF) {
+					toLeft.halo(x, store.y[i], store.charge[i], store.mass[i]);
+				}
+				if (x >= right - INTERACTION_CUTOFF) {
+					toRight.halo(x, store.y[i], store.charge[i], store.mass[i]);
+				}
+			}
+		}
+
+		fromLeft.clear();
+		fromRight.clear();
+		if (rightOut != null) {
+			toRight.write(rightOut);
+		}
+		if (leftIn != null) {
+			fromLeft.read(leftIn);
+		}
+		if (leftOut != null) {
+			toLeft.write(leftOut);
+		}
+		if (rightIn != null) {
+			fromRight.read(rightIn);
+		}
+		rebuild();
+	}
+
+	/**
+	 * Lays the store out again as the bodies staying put and those which migrated in, followed by the halos
+	 * and then the anchors: the bodies staying in this strip, with the bodies that just left as its halo, then
+	 * what arrived from the left neighbor, then what arrived from the right.
+	 */
+	private void rebuild() {
+		int owned = 0;
+		int halo = 0;
+		for (Outbox box : arrivals) {
+			owned += box.numMigrants;
+			halo += box.numHalo;
+		}
+		int size = owned + halo + anchors.size();
+		DoubleBodyStore next = spare;
+		if (next.capacity() < size) {
+			// leave room to grow so this rarely happens
+			next = new DoubleBodyStore(size * 2, size * 2);
+		}
+		next.resize(owned, size);
+		if (ids.length < owned) {
+			ids = new int[owned * 2];
+		}
+		int i = 0;
+		for (Outbox box : arrivals) {
+			for (int m = 0; m < box.numMigrants; m++) {
+				ids[i] = box.ids[m];
+				next.x[i] = box.migrants[m * 6];
+				next.y[i] = box.migrants[m * 6 + 1];
+				next.vx[i] = box.migrants[m * 6 + 2];
+				next.vy[i] = box.migrants[m * 6 + 3];
+				next.charge[i] = box.migrants[m * 6 + 4];
+				next.mass[i] = box.migrants[m * 6 + 5];
+				next.ax[i] = 0.0;
+				next.ay[i] = 0.0;
+				i++;
+			}
+		}
+		for (Outbox box : arrivals) {
+			for (int h = 0; h < box.numHalo; h++) {
+				next.x[i] = box.halo[h * 4];
+				next.y[i] = box.halo[h * 4 + 1];
+				next.charge[i] = box.halo[h * 4 + 2];
+				next.mass[i] = box.halo[h * 4 + 3];
+				clearMotion(next, i);
+				i++;
+			}
+		}
+		for (int a = 0; a < anchors.size(); a++) {
+			next.x[i] = anchors.x[a];
+			next.y[i] = anchors.y[a];
+			next.charge[i] = 0.0;
+			next.mass[i] = anchors.mass[a];
+			clearMotion(next, i);
+			i++;
+		}
+		spare = store;
+		store = next;
+	}
+
+	/**
+	 * Zeroes the velocity and acceleration of a body which isn't moved by this worker, which a reused store
+	 * may still hold from whatever was there before.
+	 * @param bodies the store of bodies
+	 * @param i the index of the body
+	 */
+	private static void clearMotion(DoubleBodyStore bodies, int i) {
+		bodies.vx[i] = 0.0;
+		bodies.vy[i] = 0.0;
+		bodies.ax[i] = 0.0;
+		bodies.ay[i] = 0.0;
+	}
+
+	/**
+	 * Works out the forces on the owned bodies and updates their accelerations. The store is laid out afresh
+	 * every substep, so the neighbor list is rebuilt every substep too, with no skin.
+	 */
+	private void force() {
+		int owned = store.moving();
+		if (indices.length < owned) {
+			indices = new int[owned * 2];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = i;
+			}
+			fx = new double[owned * 2];
+			fy = new double[owned * 2];
+		}
+		for (int i = 0; i < owned; i++) {
+			fx[i] = 0.0;
+			fy[i] = 0.0;
+		}
+		neighbors.invalidate();
+		neighbors.update(store);
+		interactions.apply(store, indices, 0, owned, fx, fy);
+		for (BatchForce force : forces) {
+			force.apply(store, indices, 0, owned, fx, fy);
+		}
+		for (int i = 0; i < owned; i++) {
+			store.accelerate(i, fx[i], fy[i]);
+		}
+	}
+
+	/**
+	 * Tells the coordinator the longest next substep any owned body can take and how many bodies just
+	 * migrated out.
+	 */
+	private void reply() throws IOException {
+		double minStep = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < store.moving(); i++) {
+			minStep = Math.min(minStep, Integrator.maxStep(store, i, MAX_MOVE));
+		}
+		coordinatorOut.writeDouble(minStep);
+		coordinatorOut.writeInt(migrated);
+		coordinatorOut.flush();
+	}
+
+	/**
+	 * Sends the owned bodies to the coordinator.
+	 */
+	private void send() throws IOException {
+		coordinatorOut.writeInt(store.moving());
+		for (int i = 0; i < store.moving(); i++) {
+			coordinatorOut.writeInt(ids[i]);
+			coordinatorOut.writeDouble(store.x[i]);
+			coordinatorOut.writeDouble(store.y[i]);
+			coordinatorOut.writeDouble(store.charge[i]);
+			coordinatorOut.writeDouble(store.mass[i]);
+		}
+		coordinatorOut.flush();
+	}
+
+	/**
+	 * Bodies going to or coming from one neighbor. Migrants carry everything needed to keep integrating them,
+	 * halo bodies only what's needed to work out forces from them.
+	 */
+	private static class Outbox {
+		private int[] ids = new int[16];
+		private double[] migrants = new double[16 * 6];
+		private int numMigrants = 0;
+		private double[] halo = new double[16 * 4];
+		private int numHalo = 0;
+
+		private void clear() {
+			numMigrants = 0;
+			numHalo = 0;
+		}
+
+		private void migrate(int id, double x, double y, double vx, double vy, double charge, double mass) {
+			if (numMigrants == ids.length) {
+				ids = Arrays.copyOf(ids, numMigrants * 2);
+				migrants = Arrays.copyOf(migrants, numMigrants * 2 * 6);
+			}
+			ids[numMigrants] = id;
+			int at = numMigrants * 6;
+			migrants[at] = x;
+			migrants[at + 1] = y;
+			migrants[at + 2] = vx;
+			migrants[at + 3] = vy;
+			migrants[at + 4] = charge;
+			migrants[at + 5] = mass;
+			numMigrants++;
+		}
+
+		private void halo(double x, double y, double charge, double mass) {
+			if (numHalo * 4 == halo.length) {
+				halo = Arrays.copyOf(halo, halo.length * 2);
+			}
+			int at = numHalo * 4;
+			halo[at] = x;
+			halo[at + 1] = y;
+			halo[at + 2] = charge;
+			halo[at + 3] = mass;
+			numHalo++;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(numMigrants);
+			for (int m = 0; m < numMigrants; m++) {
+				out.writeInt(ids[m]);
+				for (int k = 0; k < 6; k++) {
+					out.writeDouble(migrants[m * 6 + k]);
+				}
+			}
+			out.writeInt(numHalo);
+			for (int k = 0; k < numHalo * 4; k++) {
+				out.writeDouble(halo[k]);
+			}
+			out.flush();
+		}
+
+		private void read(DataInputStream in) throws IOException {
+			clear();
+			int count = in.readInt();
+			for (int m = 0; m < count; m++) {
+				migrate(in.readInt(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+						in.readDouble(), in.readDouble());
+			}
+			count = in.readInt();
+			for (int h = 0; h < count; h++) {
+				halo(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.ajawalker.suchvideo.fountain;
+
+import com.ajawalker.suchvideo.VideoMaker;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.ajawalker.suchvideo.fountain.World.*;
+
+/**
+ * Makes a 4K fountain video with the world split into strips, each simulated by its own worker process.
+ * Arguments, all optional: the number of strips (default one per core), the width and height of the world
+ * (default 3840 by 2160) and the most bodies to place (default one per hundred pixels).
+ */
+public class StripWorld {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int numStrips = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int width = args.length > 1 ? Integer.parseInt(args[1]) : 3840;
+		int height = args.length > 2 ? Integer.parseInt(args[2]) : 2160;
+		int numBodies = args.length > 3 ? Integer.parseInt(args[3]) : width * height / 100;
+
+		VideoMaker video = new VideoMaker("target/strips.mp4", width, height, 24);
+
+		// the simulation runs in the worker processes, so this process only
+		// needs threads for drawing
+		ExecutorService exec = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+		StripCoordinator sim = new StripCoordinator(numStrips, new Random(), numBodies, width, height);
+		Rasterizer rasterizer = new Rasterizer(width, height, exec, Runtime.getRuntime().availableProcessors() * 2);
+		FramePipeline pipeline = new FramePipeline(video, rasterizer, sim.heat(), width, height, 2);
+
+		for (int frameCount = 0; frameCount < NUM_FRAMES; frameCount++) {
+			sim.advance();
+			System.out.format("%d of %d (%d bodies in %d strips, %d substeps, %d migrations)%n",
+					frameCount + 1, NUM_FRAMES, sim.numBodies(), numStrips, sim.lastSteps(), sim.lastMigrations());
+
+			// draw the frame to video
+			pipeline.submit(sim.snapshot());
+		}
+
+		// all done
+		pipeline.finish();
+		sim.close();
+		exec.shutdown();
+		System.exit(0);
+	}
+}
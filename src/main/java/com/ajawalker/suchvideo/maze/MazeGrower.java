@@ -104,8 +104,35 @@ public class MazeGrower {
 	private static class Field {
 		private static final Random RND = new Random();
 
-		private final Grid<Node> grid = new Grid<>(MIN_X, MAX_X, MIN_Y, MAX_Y, WIDTH, HEIGHT);
+		// nodes end up about a neighbor radius apart all over the field; each
+		// node's particle has the same index as the node has in the list
+		private final ParticleSystem particles = ParticleSystem.forRadius(MIN_X, MAX_X, MIN_Y, MAX_Y, NEIGHBOR_RADIUS,
+				(int) ((MAX_X - MIN_X) * (MAX_Y - MIN_Y) / (NEIGHBOR_RADIUS * NEIGHBOR_RADIUS)));
 		private final List<Node> nodes = new ArrayList<>();
+		// forces on each node are worked out one node at a time, so they can
+		// all share one accumulator
+		private final Vector2Accumulator acc = new Vector2Accumulator();
+
+		private final BodyKernel brace = new BodyKernel() {
+			@Override
+			public void apply(ParticleSystem particles, int i) {
+				nodes.get(i).brace();
+			}
+		};
+
+		private final PairKernel repel = new PairKernel() {
+			@Override
+			public void apply(ParticleSystem particles, int a, int b, double distanceSqr) {
+				nodes.get(a).repel(nodes.get(b), distanceSqr);
+			}
+		};
+
+		private final BodyKernel pull = new BodyKernel() {
+			@Override
+			public void apply(ParticleSystem particles, int i) {
+				nodes.get(i).pull(acc);
+			}
+		};
 
 		private double rateFactor = 1.0;
 
@@ -113,8 +140,7 @@ public class MazeGrower {
 		 * Creates a new field.
 		 */
 		private Field() {
-			Node node = new Node(new com.ajawalker.suchvideo.position.Vector((MAX_X - MIN_X) / 2.0, (MAX_Y - MIN_Y) / 2.0));
-			grid.put(node);
+			Node node = new Node(particles, new com.ajawalker.suchvideo.position.Vector((MAX_X - MIN_X) / 2.0, (MAX_Y - MIN_Y) / 2.0));
 			nodes.add(node);
 		}
 
@@ -126,16 +152,15 @@ public class MazeGrower {
 		private boolean advance(double time) {
 			boolean grew = false;
 
-			// calculate forces on nodes
-			for (Node node : nodes) {
-				node.push(grid.neighbors(node, NEIGHBOR_RADIUS));
-			}
+			// calculate forces on nodes: drag and boundaries first, then
+			// pushes between each pair of neighbors, then connections
+			particles.index();
+			particles.forEachParticle(brace);
+			particles.forEachPairWithin(NEIGHBOR_RADIUS, repel);
+			particles.forEachParticle(pull);
 
-			// move nodes according to their forces and update position in grid
-			for (Node node : nodes) {
-				node.move(time);
-				grid.put(node);
-			}
+			// move nodes according to their forces
+			particles.integrate(time);
 
 			// perform maze growth
 			List<Node> newNodes = new LinkedList<>();
@@ -170,7 +195,7 @@ public class MazeGrower {
 					grew = true;
 					Node rootNode = node;
 					for (int j = 0; j < BRANCH_LENGTH; j++) {
-						Node branchNode = new Node(rootNode.pos().add(com.ajawalker.suchvideo.position.Vector.radial(branchAngle, BRANCH_RADIUS)));
+						Node branchNode = new Node(particles, rootNode.pos().add(com.ajawalker.suchvideo.position.Vector.radial(branchAngle, BRANCH_RADIUS)));
 						rootNode.connect(branchNode);
 						branchNode.connect(rootNode);
 						rootNode.updateAdjacents();
@@ -180,10 +205,10 @@ public class MazeGrower {
 					}
 				}
 				for (Node connection : new LinkedList<>(node.connections())) {
-					if (RND.nextDouble() < growRate && node.pos.distanceTo(connection.pos) >= GROW_RADIUS) {
+					if (RND.nextDouble() < growRate && node.pos().distanceTo(connection.pos()) >= GROW_RADIUS) {
 						// grow a new node between this connection
 						grew = true;
-						Node growNode = new Node(node.pos().add(node.pos().to(connection.pos()).scale(0.5)));
+						Node growNode = new Node(particles, node.pos().add(node.pos().to(connection.pos()).scale(0.5)));
 						node.disconnect(connection);
 						node.connect(growNode);
 						growNode.connect(node);
@@ -200,7 +225,6 @@ public class MazeGrower {
 
 			// add newly grown nodes
 			for (Node newNode : newNodes) {
-				grid.put(newNode);
 				nodes.add(newNode);
 			}
 
@@ -268,87 +292,109 @@ public class MazeGrower {
 
 	/**
 	 * A single maze node. A maze is constructed from many nodes strung together to create a branching path.
+	 * Where a node is and how it moves is kept by its particle in the field's particle system.
 	 */
 	private static class Node implements Positioned {
 		private final Set<Node> connections = new HashSet<>();
 		private final Set<Node> adjacents = new HashSet<>();
 
-		private com.ajawalker.suchvideo.position.Vector acc = com.ajawalker.suchvideo.position.Vector.ZERO;
-		private com.ajawalker.suchvideo.position.Vector vel = com.ajawalker.suchvideo.position.Vector.ZERO;
-		private com.ajawalker.suchvideo.position.Vector pos;
+		private final ParticleSystem particles;
+		private final int index;
 		private double pressure = 0.0;
 		private com.ajawalker.suchvideo.position.Vector pressureVector = com.ajawalker.suchvideo.position.Vector.ZERO;
 
 		/**
-		 * Create a new node at the provided position.
+		 * Create a new node at the provided position, with a new particle which isn't moving.
+		 * @param particles the particle system to add the node's particle to
 		 * @param pos the position of this node
 		 */
-		private Node(com.ajawalker.suchvideo.position.Vector pos) {
-			this.pos = pos;
+		private Node(ParticleSystem particles, com.ajawalker.suchvideo.position.Vector pos) {
+			this.particles = particles;
+			this.index = particles.add(pos.x(), pos.y(), 0.0, 0.0);
 		}
 
 		/**
-		 * Calculate forces on this node.
-		 * @param neighbors this node's neighbors
+		 * Start calculating forces on this node: apply drag and push it away from boundaries.
 		 */
-		private void push(Iterable<Node> neighbors) {
+		private void brace() {
 			pressure = 0.0;
+			double x = particles.x(index);
+			double y = particles.y(index);
 
 			// apply drag to slow down quickly moving nodes.
-			acc = vel.scale(-DRAG_COEFF);
+			double ax = particles.vx(index) * -DRAG_COEFF;
+			double ay = particles.vy(index) * -DRAG_COEFF;
 
 			// push nodes away from boundaries
-			if (pos.x() < MIN_X) {
-				acc = acc.add(com.ajawalker.suchvideo.position.Vector.UNIT_X.scale(BOUNDARY_COEFF * (MIN_X - pos.x())));
-				pressure += Math.abs(BOUNDARY_COEFF * (MIN_X - pos.x()));
+			if (x < MIN_X) {
+				ax += BOUNDARY_COEFF * (MIN_X - x);
+				pressure += Math.abs(BOUNDARY_COEFF * (MIN_X - x));
 			}
-			if (pos.x() > MAX_X) {
-				acc = acc.add(com.ajawalker.suchvideo.position.Vector.UNIT_X.scale(BOUNDARY_COEFF * (MAX_X - pos.x())));
-				pressure += Math.abs(BOUNDARY_COEFF * (MAX_X - pos.x()));
+			if (x > MAX_X) {
+				ax += BOUNDARY_COEFF * (MAX_X - x);
+				pressure += Math.abs(BOUNDARY_COEFF * (MAX_X - x));
 			}
-			if (pos.y() < MIN_Y) {
-				acc = acc.add(com.ajawalker.suchvideo.position.Vector.UNIT_Y.scale(BOUNDARY_COEFF * (MIN_Y - pos.y())));
-				pressure += Math.abs(BOUNDARY_COEFF * (MIN_Y - pos.y()));
+			if (y < MIN_Y) {
+				ay += BOUNDARY_COEFF * (MIN_Y - y);
+				pressure += Math.abs(BOUNDARY_COEFF * (MIN_Y - y));
 			}
-			if (pos.y() > MAX_Y ) {
-				acc = acc.add(com.ajawalker.suchvideo.position.Vector.UNIT_Y.scale(BOUNDARY_COEFF * (MAX_Y - pos.y())));
-				pressure += Math.abs(BOUNDARY_COEFF * (MAX_Y - pos.y()));
+			if (y > MAX_Y) {
+				ay += BOUNDARY_COEFF * (MAX_Y - y);
+				pressure += Math.abs(BOUNDARY_COEFF * (MAX_Y - y));
 			}
+			particles.setAcceleration(index, ax, ay);
+		}
 
-			// push nodes away from neighbors
-			for (Node neighbor : neighbors) {
-				if (!connections.contains(neighbor)) {
-					double dist = pos.distanceTo(neighbor.pos);
-					if (dist < NEIGHBOR_RADIUS) {
-						double factor = -NEIGHBOR_COEFF * (1.0 - dist / NEIGHBOR_RADIUS);
-						acc = acc.add(pos.to(neighbor.pos).normalize().scale(factor));
-						pressure += Math.abs(-factor * factor);
+		/**
+		 * Push this node and a neighbor away from each other, unless they're connected.
+		 * @param neighbor the neighboring node
+		 * @param distanceSqr the square of the distance to the neighboring node
+		 */
+		private void repel(Node neighbor, double distanceSqr) {
+			if (!connections.contains(neighbor)) {
+				double dist = Math.sqrt(distanceSqr);
+				if (dist < NEIGHBOR_RADIUS) {
+					double factor = -NEIGHBOR_COEFF * (1.0 - dist / NEIGHBOR_RADIUS);
+					if (dist == 0.0) {
+						// no way to tell which way is away, so both go along the x-axis
+						particles.accelerate(index, factor, 0.0 * factor);
+						particles.accelerate(neighbor.index, factor, 0.0 * factor);
+					} else {
+						double pushx = (particles.x(neighbor.index) - particles.x(index)) / dist * factor;
+						double pushy = (particles.y(neighbor.index) - particles.y(index)) / dist * factor;
+						particles.accelerate(index, pushx, pushy);
+						particles.accelerate(neighbor.index, -pushx, -pushy);
 					}
+					pressure += Math.abs(-factor * factor);
+					neighbor.pressure += Math.abs(-factor * factor);
 				}
 			}
-			pressureVector = acc;
+		}
+
+		/**
+		 * Finish calculating forces on this node, once it has been pushed by all of its neighbors: pull it
+		 * towards its connected nodes and straighten it out between them.
+		 * @param acc somewhere to accumulate the forces
+		 */
+		private void pull(Vector2Accumulator acc) {
+			acc.set(particles.ax(index), particles.ay(index));
+			pressureVector = acc.toVector();
 
 			// push nodes towards average (center) of its connected nodes
+			com.ajawalker.suchvideo.position.Vector pos = pos();
 			com.ajawalker.suchvideo.position.Vector avgPos = com.ajawalker.suchvideo.position.Vector.ZERO;
 			for (Node connection : connections) {
-				double dist = pos.distanceTo(connection.pos);
+				com.ajawalker.suchvideo.position.Vector connectionPos = connection.pos();
+				double dist = pos.distanceTo(connectionPos);
 				double factor = -CONNECTION_COEFF * (1.0 - dist / CONNECTION_RADIUS);
-				acc = acc.add(pos.to(connection.pos).normalize().scale(factor));
-				avgPos = avgPos.add(connection.pos);
+				acc.addScaledDirection(pos, connectionPos, factor);
+				avgPos = avgPos.add(connectionPos);
 			}
 			if (connections.size() >= 2) {
 				avgPos = avgPos.scale(1.0 / connections.size());
-				acc = acc.add(pos.to(avgPos).scale(STRAIGHTEN_COEFF));
+				acc.addScaledDifference(pos, avgPos, STRAIGHTEN_COEFF);
 			}
-		}
-
-		/**
-		 * Move this node based on forces currently on it.
-		 * @param time time step to move node by
-		 */
-		private void move(double time) {
-			this.vel = this.vel.add(this.acc.scale(time));
-			this.pos = this.pos.add(this.vel.scale(time));
+			particles.setAcceleration(index, acc.x(), acc.y());
 		}
 
 		/**
@@ -356,8 +402,10 @@ public class MazeGrower {
 		 * @param g graphics object to draw to
 		 */
 		private void draw(Graphics2D g) {
+			double x = particles.x(index);
+			double y = particles.y(index);
 			for (Node connection : connections) {
-				g.draw(new Line2D.Double(pos.x(), pos.y(), connection.pos.x(), connection.pos.y()));
+				g.draw(new Line2D.Double(x, y, connection.particles.x(connection.index), connection.particles.y(connection.index)));
 			}
 		}
 
@@ -470,7 +518,7 @@ public class MazeGrower {
 
 		@Override
 		public com.ajawalker.suchvideo.position.Vector pos() {
-			return pos;
+			return particles.pos(index);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * Something done to each particle of a {@link ParticleSystem} on its own, e.g. applying gravity or drag, or
+ * bouncing it off a wall. Body passes may run on many threads, so a kernel should only change the particle it
+ * is shown.
+ */
+public interface BodyKernel {
+	/**
+	 * Applies the kernel to a particle.
+	 * @param particles the particle system
+	 * @param i the index of the particle
+	 */
+	void apply(ParticleSystem particles, int i);
+}
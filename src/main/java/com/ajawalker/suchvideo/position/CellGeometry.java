@@ -0,0 +1,227 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * The layout of a grid's cells over space, shared by the grids which lay their cells out the same way. Space
+ * is separated into equal sized cells with a border of cells all the way around which go on forever, and
+ * cells are numbered column by column. Besides turning positions into cells this knows which cells lookups
+ * have to visit: the rings of cells a nearest neighbors search walks outward through, and the cells after a
+ * cell which a pair walk pairs it with, which are the rest of its column above it and a band of rows in each
+ * of the columns to its right. Whatever is in the cells is up to the grid.
+ */
+final class CellGeometry {
+	private final double minx;
+	private final double maxx;
+	private final double miny;
+	private final double maxy;
+	private final int resx;
+	private final int resy;
+	private final double sizex;
+	private final double sizey;
+
+	/**
+	 * Constructs a layout of cells over the provided extents.
+	 * @param minx minimum expected x coordinate of grid space
+	 * @param maxx maximum expected x coordinate of grid space
+	 * @param miny minimum expected y coordinate of grid space
+	 * @param maxy maximum expected y coordinate of grid space
+	 * @param resx how many cells to separate x-axis into
+	 * @param resy how many cells to separate y-axis into
+	 */
+	CellGeometry(double minx, double maxx, double miny, double maxy, int resx, int resy) {
+		this.minx = minx;
+		this.maxx = maxx;
+		this.miny = miny;
+		this.maxy = maxy;
+		this.resx = resx;
+		this.resy = resy;
+		this.sizex = (maxx - minx) / resx;
+		this.sizey = (maxy - miny) / resy;
+	}
+
+	/**
+	 * Returns how many cells there are, counting the border.
+	 */
+	int cells() {
+		return (resx + 2) * (resy + 2);
+	}
+
+	/**
+	 * Calculates how many columns away things within a radius can be.
+	 * @param radius the radius
+	 * @return how many columns away neighbors can be
+	 */
+	int reachx(double radius) {
+		return reach(radius, sizex, resx);
+	}
+
+	/**
+	 * Calculates how many rows away things within a radius can be.
+	 * @param radius the radius
+	 * @return how many rows away neighbors can be
+	 */
+	int reachy(double radius) {
+		return reach(radius, sizey, resy);
+	}
+
+	/**
+	 * Returns the last column a pair walk pairs a column with.
+	 * @param ndxx the index x coordinate of the column
+	 * @param reachx how many columns away neighbors can be
+	 */
+	int lastColumn(int ndxx, int reachx) {
+		return Math.min(resx + 1, ndxx + reachx);
+	}
+
+	/**
+	 * Returns the first cell of a column a pair walk pairs a cell in some row with.
+	 * @param ndxx the index x coordinate of the column
+	 * @param ndxy the index y coordinate of the row
+	 * @param reachy how many rows away neighbors can be
+	 */
+	int firstCell(int ndxx, int ndxy, int reachy) {
+		return ndx(ndxx, Math.max(0, ndxy - reachy));
+	}
+
+	/**
+	 * Returns the last cell of a column a pair walk pairs a cell in some row with. Along with
+	 * {@link #firstCell(int, int, int)} this bounds the cells paired with, which are numbered one after
+	 * another, and in a cell's own column the cells after it up to this one are those above it.
+	 * @param ndxx the index x coordinate of the column
+	 * @param ndxy the index y coordinate of the row
+	 * @param reachy how many rows away neighbors can be
+	 */
+	int lastCell(int ndxx, int ndxy, int reachy) {
+		return ndx(ndxx, Math.min(resy + 1, ndxy + reachy));
+	}
+
+	/**
+	 * Fills in the items nearest to a point, searching rings of cells until no item in the next ring could
+	 * make it into the results.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param k how many items to find
+	 * @param exclude an item to leave out, or null
+	 * @param nearest the results to fill in
+	 * @param cells the cells to offer items from
+	 * @param counters the counters to record the query in, or null
+	 */
+	<T> void nearest(double x, double y, int k, T exclude, Nearest<? super T> nearest, Cells<T> cells, GridCounters counters) {
+		nearest.clear(k);
+		int cx = ndxx(x);
+		int cy = ndxy(y);
+		long visited = 0;
+		long candidates = 0;
+		for (int d = 0; k > 0; d++) {
+			// the left and right sides of the ring are whole columns, the
+			// rest of it is just the top and bottom cells
+			for (int nx = Math.max(0, cx - d); nx <= Math.min(resx + 1, cx + d); nx++) {
+				if (nx == cx - d || nx == cx + d) {
+					for (int ny = Math.max(0, cy - d); ny <= Math.min(resy + 1, cy + d); ny++) {
+						candidates += cells.offer(ndx(nx, ny), x, y, exclude, nearest);
+						visited++;
+					}
+				} else {
+					if (cy - d >= 0) {
+						candidates += cells.offer(ndx(nx, cy - d), x, y, exclude, nearest);
+						visited++;
+					}
+					if (cy + d <= resy + 1) {
+						candidates += cells.offer(ndx(nx, cy + d), x, y, exclude, nearest);
+						visited++;
+					}
+				}
+			}
+
+			// anything beyond the rings so far is at least as far away as
+			// their nearest edge; the outermost cells go on forever
+			double beyond = Double.POSITIVE_INFINITY;
+			if (cx - d > 0) {
+				beyond = Math.min(beyond, x - (minx + (cx - d - 1) * sizex));
+			}
+			if (cx + d < resx + 1) {
+				beyond = Math.min(beyond, minx + (cx + d) * sizex - x);
+			}
+			if (cy - d > 0) {
+				beyond = Math.min(beyond, y - (miny + (cy - d - 1) * sizey));
+			}
+			if (cy + d < resy + 1) {
+				beyond = Math.min(beyond, miny + (cy + d) * sizey - y);
+			}
+			if (beyond == Double.POSITIVE_INFINITY || beyond * beyond >= nearest.worst()) {
+				break;
+			}
+		}
+		nearest.finish();
+		if (counters != null) {
+			counters.query(visited, candidates, nearest.size());
+		}
+	}
+
+	/**
+	 * Calculates how many cells away along an axis things within a radius can be.
+	 * @param radius the radius
+	 * @param size the size of a cell along the axis
+	 * @param res how many cells the axis is separated into
+	 * @return how many cells away neighbors can be
+	 */
+	private static int reach(double radius, double size, int res) {
+		return (int) Math.min(res + 1, Math.ceil(radius / size));
+	}
+
+	/**
+	 * Calculates the index x coordinate from the provided space x coordinate.
+	 * @param x the space x coordinate
+	 * @return the corresponding index x coordinate
+	 */
+	int ndxx(double x) {
+		if (x < minx) {
+			return 0;
+		}
+		if (x >= maxx) {
+			return resx + 1;
+		}
+		return (int) ((x - minx) / sizex) + 1;
+	}
+
+	/**
+	 * Calculates the index y coordinate from the provided space y coordinate.
+	 * @param y the space y coordinate
+	 * @return the corresponding index y coordinate
+	 */
+	int ndxy(double y) {
+		if (y < miny) {
+			return 0;
+		}
+		if (y >= maxy) {
+			return resy + 1;
+		}
+		return (int) ((y - miny) / sizey) + 1;
+	}
+
+	/**
+	 * Calculates the index absolute coordinate from the provided index x and y coordinates
+	 * @param ndxx the index x coordinate
+	 * @param ndxy the index y coordinate
+	 * @return the corresponding index absolute coordinate
+	 */
+	int ndx(int ndxx, int ndxy) {
+		return ndxx * (resy + 2) + ndxy;
+	}
+
+	/**
+	 * The things in a grid's cells, as far as a nearest neighbors search needs them.
+	 * @param <T> the type of thing in the cells
+	 */
+	interface Cells<T> {
+		/**
+		 * Offers every item in a cell to the results of a nearest neighbors query.
+		 * @param cell the index of the cell
+		 * @param x the x coordinate of the point
+		 * @param y the y coordinate of the point
+		 * @param exclude an item to leave out, or null
+		 * @param nearest the results to offer items to
+		 * @return how many items the cell holds
+		 */
+		int offer(int cell, double x, double y, T exclude, Nearest<? super T> nearest);
+	}
+}
@@ -0,0 +1,246 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+/**
+ * A 2-dimensional index of positioned things which is rebuilt from scratch whenever things move, rather than
+ * updated one thing at a time like {@link Grid}. Space is separated into the same equal sized cells as a grid
+ * with the same extents and resolution, but things are sorted by cell using a counting sort into flat arrays:
+ * the things in each cell sit next to each other, and an array of cell starts says where each cell begins.
+ * Rebuilding takes a couple of passes over the things and no hashing at all, which is far cheaper than
+ * putting every thing into a grid again when most things move every step.
+ * <p>
+ * Each rebuild produces a new immutable {@link GridSnapshot} and then makes it current, so lookups see things
+ * where they were at the last rebuild. A snapshot taken with {@link #snapshot()} can be queried by many
+ * threads at once, and keeps working unchanged however many times the grid is rebuilt afterwards.
+ * @param <T> the type of thing which will be indexed in this grid
+ */
+public class CellGrid<T extends Positioned> {
+	private final double minx;
+	private final double maxx;
+	private final double miny;
+	private final double maxy;
+	private final int resx;
+	private final int resy;
+
+	private volatile GridSnapshot<T> current;
+	private volatile GridCounters counters = null;
+
+	/**
+	 * Constructs an empty grid using the provided extents. Any indexed items outside the extents will be
+	 * placed in the same cell, thus lookups of those items will not be optimized.
+	 * @param minx minimum expected x coordinate of grid space
+	 * @param maxx maximum expected x coordinate of grid space
+	 * @param miny minimum expected y coordinate of grid space
+	 * @param maxy maximum expected y coordinate of grid space
+	 * @param resx how many cells to separate x-axis into; more cells require more memory but lookups are faster
+	 * @param resy how many cells to separate y-axis into; more cells require more memory but lookups are faster
+	 */
+	public CellGrid(double minx, double maxx, double miny, double maxy, int resx, int resy) {
+		this.minx = minx;
+		this.maxx = maxx;
+		this.miny = miny;
+		this.maxy = maxy;
+		this.resx = resx;
+		this.resy = resy;
+		rebuild(Collections.<T>emptyList());
+	}
+
+	/**
+	 * Replaces everything in the grid with the provided items at their current positions.
+	 * @param items the items to put into the grid
+	 */
+	public void rebuild(Collection<? extends T> items) {
+		try {
+			rebuild(items, null, 1);
+		} catch (InterruptedException e) {
+			// nothing waits on other threads without an executor
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Replaces everything in the grid with the provided items at their current positions, sorting them into
+	 * cells in parallel. The items must not move until this returns.
+	 * @param items the items to put into the grid
+	 * @param exec the executor to run work on, or null to do it all on this thread
+	 * @param numTasks how many tasks to split the work into
+	 */
+	public void rebuild(Collection<? extends T> items, Executor exec, int numTasks) throws InterruptedException {
+		GridCounters counting = counters;
+		long start = System.nanoTime();
+		current = GridSnapshot.build(minx, maxx, miny, maxy, resx, resy, items, exec, numTasks, counting);
+		if (counting != null) {
+			counting.rebuild(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns the snapshot made by the last rebuild, which may be queried by any number of threads.
+	 */
+	public GridSnapshot<T> snapshot() {
+		return current;
+	}
+
+	/**
+	 * Returns how many items are in the grid.
+	 */
+	public int size() {
+		return current.size();
+	}
+
+	/**
+	 * Works out how full the grid's cells are, which takes a look at every cell.
+	 * @return how full the grid's cells are
+	 */
+	public Occupancy occupancy() {
+		return current.occupancy();
+	}
+
+	/**
+	 * Starts or stops keeping metrics on what the grid does, from the next rebuild on. Starting always starts
+	 * counting from zero, and while stopped the grid does next to no extra work. Queries of snapshots built
+	 * while metrics are kept are counted too, whichever thread makes them.
+	 * @param enabled whether to keep metrics
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		counters = enabled ? new GridCounters() : null;
+	}
+
+	/**
+	 * Takes a snapshot of the grid's metrics, along with how full its cells are, which takes a look at every
+	 * cell. Only the occupancy and histogram are filled in while metrics aren't enabled.
+	 * @return the grid's metrics
+	 */
+	public GridMetrics metrics() {
+		GridSnapshot<T> snapshot = current;
+		GridCounters snapshotOf = counters == null ? new GridCounters() : counters;
+		return snapshotOf.snapshot(snapshot.occupancy(), snapshot.histogram());
+	}
+
+	/**
+	 * Returns all neighbors which are within the specified radius of the provided item.
+	 * @param item the item whose neighbors to find
+	 * @param radius the radius within which to find neighbors
+	 * @return a collection of neighbors within the specified radius
+	 */
+	public Collection<T> neighbors(T item, double radius) {
+		return current.neighbors(item, radius);
+	}
+
+	/**
+	 * Returns all neighbors which are within the specified radius of the specified point.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to find neighbors
+	 * @return a collection of neighbors within the specified radius
+	 */
+	public Collection<T> neighbors(Vector pos, double radius) {
+		return current.neighbors(pos, radius);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item, without allocating
+	 * anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(T item, double radius, Visitor<? super T> visitor) {
+		current.forEachNeighbor(item, radius, visitor);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(T item, double radius, DistanceVisitor<? super T> visitor) {
+		current.forEachNeighbor(item, radius, visitor);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point, without allocating
+	 * anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(Vector pos, double radius, Visitor<? super T> visitor) {
+		current.forEachNeighbor(pos, radius, visitor);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(Vector pos, double radius, DistanceVisitor<? super T> visitor) {
+		current.forEachNeighbor(pos, radius, visitor);
+	}
+
+	/**
+	 * Visits every item within the specified rectangle, edges included, as they were when the grid was last
+	 * rebuilt, for example to draw only what's in a viewport or a tile.
+	 * @param minx the minimum x coordinate of the rectangle
+	 * @param miny the minimum y coordinate of the rectangle
+	 * @param maxx the maximum x coordinate of the rectangle
+	 * @param maxy the maximum y coordinate of the rectangle
+	 * @param visitor the visitor to show each item to
+	 */
+	public void forEachInRect(double minx, double miny, double maxx, double maxy, Visitor<? super T> visitor) {
+		current.forEachInRect(minx, miny, maxx, maxy, visitor);
+	}
+
+	/**
+	 * Finds the items nearest to the specified point, without allocating anything along the way.
+	 * @param pos the position of the point
+	 * @param k how many items to find
+	 * @param nearest the results to fill in, which are sorted nearest first
+	 * @see GridSnapshot#nearest(Vector, int, Nearest)
+	 */
+	public void nearest(Vector pos, int k, Nearest<? super T> nearest) {
+		current.nearest(pos, k, nearest);
+	}
+
+	/**
+	 * Finds the items nearest to the provided item, not counting the item itself, without allocating anything
+	 * along the way.
+	 * @param item the item whose nearest neighbors to find
+	 * @param k how many items to find
+	 * @param nearest the results to fill in, which are sorted nearest first
+	 * @see GridSnapshot#nearest(Vector, int, Nearest)
+	 */
+	public void nearest(T item, int k, Nearest<? super T> nearest) {
+		current.nearest(item, k, nearest);
+	}
+
+	/**
+	 * Visits every pair of items which are within the specified radius of each other exactly once, without
+	 * allocating anything along the way.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 * @see GridSnapshot#forEachPairWithin(double, PairVisitor)
+	 */
+	public void forEachPairWithin(double radius, PairVisitor<? super T> visitor) {
+		current.forEachPairWithin(radius, visitor);
+	}
+
+	/**
+	 * Visits every pair of items which are within the specified radius of each other exactly once, in
+	 * parallel; the visitor is never called with the same item on two threads at once.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 * @param exec the executor to run work on
+	 * @param numTasks how many tasks to split the work into, roughly
+	 * @see GridSnapshot#forEachPairWithin(double, PairVisitor, Executor, int)
+	 */
+	public void forEachPairWithin(double radius, PairVisitor<? super T> visitor, Executor exec, int numTasks) throws InterruptedException {
+		current.forEachPairWithin(radius, visitor, exec, numTasks);
+	}
+}
@@ -0,0 +1,55 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs work over the columns of a grid in parallel when the work for each column also touches the columns
+ * after it, up to some reach. Columns are split into strips at least as wide as the reach and every other
+ * strip is run at once, first the even ones and then the odd ones; the columns an even strip touches then
+ * never overlap those of another even strip, and likewise for the odd ones, so no two tasks running at the
+ * same time ever touch the same column.
+ */
+final class ColumnStrips {
+	private ColumnStrips() {
+	}
+
+	/**
+	 * Runs work over all columns in strips on the executor, waiting for it all to finish.
+	 * @param exec the executor to run work on
+	 * @param numTasks how many tasks to split each half of the strips into, roughly; at least one is used
+	 * @param columns how many columns there are
+	 * @param reach how many columns after its own the work for a column touches
+	 * @param strip the work to do for each strip
+	 */
+	static void run(Executor exec, int numTasks, int columns, int reach, final Strip strip) throws InterruptedException {
+		int tasks = Math.max(1, numTasks);
+		int width = Math.max(Math.max(1, reach), (columns + 2 * tasks - 1) / (2 * tasks));
+		int numStrips = (columns + width - 1) / width;
+		for (int phase = 0; phase < 2; phase++) {
+			final CountDownLatch latch = new CountDownLatch((numStrips - phase + 1) / 2);
+			for (int s = phase; s < numStrips; s += 2) {
+				final int from = s * width;
+				final int to = Math.min(columns, from + width);
+				exec.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							strip.run(from, to);
+						} finally {
+							latch.countDown();
+						}
+					}
+				});
+			}
+			latch.await();
+		}
+	}
+
+	/**
+	 * A piece of work over a strip of columns.
+	 */
+	interface Strip {
+		void run(int from, int to);
+	}
+}
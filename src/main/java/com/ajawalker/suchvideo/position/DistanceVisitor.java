@@ -0,0 +1,15 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * Something which is shown the neighbors of a point one at a time, along with how far away each one is, so
+ * it doesn't have to work the distance out again.
+ * @param <T> the type of item visited
+ */
+public interface DistanceVisitor<T> {
+	/**
+	 * Visits a neighbor.
+	 * @param neighbor the neighbor
+	 * @param distanceSqr the square of the distance from the point to the neighbor
+	 */
+	void visit(T neighbor, double distanceSqr);
+}
@@ -1,23 +1,68 @@
 package com.ajawalker.suchvideo.position;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * A 2-dimensional index of positioned things. The index is implemented by naively separating space
- * into equal sized cells and putting things in the cell corresponding to their position.
+ * into equal sized cells and putting things in the cell corresponding to their position. Each cell holds
+ * its things in a small array, so looking things up walks arrays rather than hash sets.
+ * <p>
+ * Things which implement {@link GridHandle} carry their own cell and place within it, so putting them back
+ * after they move needs no hash lookups: if they're still in the same cell nothing happens at all, and
+ * otherwise they're swapped out of their old cell in constant time. Other things are found through a hash
+ * map, and both kinds can share a grid.
+ * <p>
+ * Every cell costs memory whether or not anything is in it, so rather than picking a resolution by hand it's
+ * best to let {@link #forRadius(double, double, double, double, double, int)} pick one from how far lookups
+ * reach and how many things there will be. How full the cells are can be checked with {@link #occupancy()},
+ * how well lookups suit the cells with {@link #metrics()} once {@link #setMetricsEnabled(boolean) enabled},
+ * and the resolution changed later with {@link #retune(double)}.
  * @param <T> the type of thing which will be indexed in this grid
  */
-public class Grid<T extends Positioned> {
-	private final ArrayList<Set<T>> grid;
-	private final Map<T, Set<T>> index;
+public class Grid<T extends Positioned> implements SpatialIndex<T> {
+	/**
+	 * The most cells a grid sized for a radius will have unless told otherwise, which is a little under a
+	 * megabyte of cells.
+	 */
+	public static final int DEFAULT_MAX_CELLS = 1 << 16;
+
+	private static final int CELLS_PER_ITEM = 4;
+
+	private final Map<T, Integer> index;
 	private final double minx;
 	private final double maxx;
 	private final double miny;
 	private final double maxy;
-	private final int resx;
-	private final int resy;
-	private final double sizex;
-	private final double sizey;
+	private Object[][] cells;
+	private int[] counts;
+	private int resx;
+	private int resy;
+	private CellGeometry geometry;
+	private int size = 0;
+	private GridCounters counters = null;
+
+	/**
+	 * Offers the items in each cell to nearest neighbors searches.
+	 */
+	private final CellGeometry.Cells<T> offers = new CellGeometry.Cells<T>() {
+		@Override
+		public int offer(int cell, double x, double y, T exclude, Nearest<? super T> nearest) {
+			Object[] things = cells[cell];
+			for (int i = 0; i < counts[cell]; i++) {
+				Positioned item = (Positioned) things[i];
+				if (item != exclude) {
+					double dx = item.pos().x() - x;
+					double dy = item.pos().y() - y;
+					double dsqr = dx * dx + dy * dy;
+					if (dsqr < nearest.worst()) {
+						nearest.offer(item, dsqr);
+					}
+				}
+			}
+			return counts[cell];
+		}
+	};
 
 	/**
 	 * Constructs a grid using the provided extents. Any indexed items outside the extents will be placed
@@ -34,14 +79,124 @@ public class Grid<T extends Positioned> {
 		this.maxx = maxx;
 		this.miny = miny;
 		this.maxy = maxy;
-		this.resx = resx;
-		this.resy = resy;
-		this.sizex = (maxx - minx) / resx;
-		this.sizey = (maxy - miny) / resy;
-		grid = new ArrayList<>((resx + 2) * (resy + 2));
 		index = new HashMap<>();
-		for (int i = 0; i < (resx + 2) * (resy + 2); i++) {
-			grid.add(new HashSet<T>());
+		allocate(resx, resy);
+	}
+
+	/**
+	 * Constructs a grid using the provided extents, with cells about as big as the radius of lookups so that
+	 * each lookup only has to look in the cells around it, but with no more than a few cells for each of the
+	 * expected items and no more than {@link #DEFAULT_MAX_CELLS} in all; cells are made bigger as needed.
+	 * @param minx minimum expected x coordinate of grid space
+	 * @param maxx maximum expected x coordinate of grid space
+	 * @param miny minimum expected y coordinate of grid space
+	 * @param maxy maximum expected y coordinate of grid space
+	 * @param radius the radius of most lookups
+	 * @param expectedItems how many items the grid is expected to hold
+	 * @param <T> the type of thing which will be indexed in the grid
+	 * @return the new grid
+	 */
+	public static <T extends Positioned> Grid<T> forRadius(double minx, double maxx, double miny, double maxy, double radius, int expectedItems) {
+		return forRadius(minx, maxx, miny, maxy, radius, expectedItems, DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * Constructs a grid using the provided extents, with cells about as big as the radius of lookups but with
+	 * no more than a few cells for each of the expected items and no more than the specified number in all.
+	 * @param minx minimum expected x coordinate of grid space
+	 * @param maxx maximum expected x coordinate of grid space
+	 * @param miny minimum expected y coordinate of grid space
+	 * @param maxy maximum expected y coordinate of grid space
+	 * @param radius the radius of most lookups
+	 * @param expectedItems how many items the grid is expected to hold
+	 * @param maxCells the most cells the grid may have
+	 * @param <T> the type of thing which will be indexed in the grid
+	 * @return the new grid
+	 */
+	public static <T extends Positioned> Grid<T> forRadius(double minx, double maxx, double miny, double maxy, double radius, int expectedItems, int maxCells) {
+		int[] res = resolution(maxx - minx, maxy - miny, radius, expectedItems, maxCells);
+		return new Grid<>(minx, maxx, miny, maxy, res[0], res[1]);
+	}
+
+	/**
+	 * Returns how many items are in the grid.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Works out how full the grid's cells are, which takes a look at every cell.
+	 * @return how full the grid's cells are
+	 */
+	public Occupancy occupancy() {
+		int occupied = 0;
+		int most = 0;
+		for (int cell = 0; cell < counts.length; cell++) {
+			occupied += counts[cell] > 0 ? 1 : 0;
+			most = Math.max(most, counts[cell]);
+		}
+		int outside = 0;
+		for (int ndxx = 0; ndxx < resx + 2; ndxx++) {
+			outside += counts[geometry.ndx(ndxx, 0)] + counts[geometry.ndx(ndxx, resy + 1)];
+		}
+		for (int ndxy = 1; ndxy <= resy; ndxy++) {
+			outside += counts[geometry.ndx(0, ndxy)] + counts[geometry.ndx(resx + 1, ndxy)];
+		}
+		return new Occupancy(resx, resy, size, occupied, most, outside);
+	}
+
+	/**
+	 * Starts or stops keeping metrics on what the grid does. Starting always starts counting from zero, and
+	 * while stopped the grid does next to no extra work.
+	 * @param enabled whether to keep metrics
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		counters = enabled ? new GridCounters() : null;
+	}
+
+	/**
+	 * Takes a snapshot of the grid's metrics, along with how full its cells are, which takes a look at every
+	 * cell. Only the occupancy and histogram are filled in while metrics aren't enabled.
+	 * @return the grid's metrics
+	 */
+	public GridMetrics metrics() {
+		GridCounters snapshotOf = counters == null ? new GridCounters() : counters;
+		return snapshotOf.snapshot(occupancy(), GridMetrics.histogram(counts, 0, counts.length));
+	}
+
+	/**
+	 * Changes the resolution of the grid to suit the radius of lookups and how many items it holds now, as
+	 * when constructing a grid with {@link #forRadius(double, double, double, double, double, int)}.
+	 * @param radius the radius of most lookups
+	 */
+	public void retune(double radius) {
+		int[] res = resolution(maxx - minx, maxy - miny, radius, size, DEFAULT_MAX_CELLS);
+		retune(res[0], res[1]);
+	}
+
+	/**
+	 * Changes the resolution of the grid, moving every item into its new cell.
+	 * @param resx how many cells to separate x-axis into
+	 * @param resy how many cells to separate y-axis into
+	 */
+	@SuppressWarnings("unchecked")
+	public void retune(int resx, int resy) {
+		if (resx == this.resx && resy == this.resy) {
+			return;
+		}
+		long start = System.nanoTime();
+		Object[][] oldCells = cells;
+		int[] oldCounts = counts;
+		allocate(resx, resy);
+		for (int old = 0; old < oldCells.length; old++) {
+			for (int i = 0; i < oldCounts[old]; i++) {
+				T item = (T) oldCells[old][i];
+				place(item, geometry.ndx(geometry.ndxx(item.pos().x()), geometry.ndxy(item.pos().y())));
+			}
+		}
+		if (counters != null) {
+			counters.rebuild(System.nanoTime() - start);
 		}
 	}
 
@@ -50,11 +205,30 @@ public class Grid<T extends Positioned> {
 	 * @param item the item to put into the grid
 	 * @return true if the item was not already in the grid, false if it was
 	 */
+	@Override
 	public boolean put(T item) {
-		boolean contained = remove(item);
-		Set<T> cell = grid.get(ndx(ndxx(item.pos().x()), ndxy(item.pos().y())));
-		cell.add(item);
-		index.put(item, cell);
+		if (counters != null) {
+			counters.put();
+		}
+		int cell = geometry.ndx(geometry.ndxx(item.pos().x()), geometry.ndxy(item.pos().y()));
+		if (item instanceof GridHandle) {
+			// handles keep their cell plus one, so zero means not in the grid
+			GridHandle handle = (GridHandle) item;
+			int current = handle.gridCell() - 1;
+			if (current == cell) {
+				return false;
+			}
+			if (current >= 0) {
+				removeAt(current, handle.gridSlot());
+			} else {
+				size++;
+			}
+			place(item, cell);
+			return current < 0;
+		}
+		boolean contained = take(item);
+		place(item, cell);
+		size++;
 		return !contained;
 	}
 
@@ -63,13 +237,42 @@ public class Grid<T extends Positioned> {
 	 * @param item the item to remove from the grid
 	 * @return true if the item was in the grid, false if it was not
 	 */
+	@Override
 	public boolean remove(T item) {
-		Set<T> cell = index.get(item);
+		if (counters != null) {
+			counters.remove();
+		}
+		return take(item);
+	}
+
+	/**
+	 * Takes the item out of the grid, if it's in it.
+	 * @param item the item to take out of the grid
+	 * @return true if the item was in the grid, false if it was not
+	 */
+	private boolean take(T item) {
+		if (item instanceof GridHandle) {
+			GridHandle handle = (GridHandle) item;
+			if (handle.gridCell() == 0) {
+				return false;
+			}
+			removeAt(handle.gridCell() - 1, handle.gridSlot());
+			handle.setGridCell(0);
+			size--;
+			return true;
+		}
+		Integer cell = index.remove(item);
 		if (cell == null) {
 			return false;
 		} else {
-			cell.remove(item);
-			index.remove(item);
+			Object[] things = cells[cell];
+			for (int slot = 0; slot < counts[cell]; slot++) {
+				if (things[slot] == item) {
+					removeAt(cell, slot);
+					break;
+				}
+			}
+			size--;
 			return true;
 		}
 	}
@@ -80,24 +283,15 @@ public class Grid<T extends Positioned> {
 	 * @param radius the radius within which to find neighbors
 	 * @return a collection of neighbors within the specified radius
 	 */
+	@Override
 	public Collection<T> neighbors(T item, double radius) {
-		double x = item.pos().x();
-		double y = item.pos().y();
-		int ndxxmin = ndxx(x - radius);
-		int ndxxmax = ndxx(x + radius);
-		int ndxymin = ndxy(y - radius);
-		int ndxymax = ndxy(y + radius);
-		double rsqr = radius * radius;
-		List<T> neighbors = new ArrayList<>();
-		for (int ndxx = ndxxmin; ndxx <= ndxxmax; ndxx++) {
-			for (int ndxy = ndxymin; ndxy <= ndxymax; ndxy++) {
-				for (T neighbor : grid.get(ndx(ndxx, ndxy))) {
-					if (neighbor != item && item.pos().distanceToSqr(neighbor.pos()) <= rsqr) {
-						neighbors.add(neighbor);
-					}
-				}
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(item, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
 			}
-		}
+		});
 		return Collections.unmodifiableList(neighbors);
 	}
 
@@ -107,62 +301,370 @@ public class Grid<T extends Positioned> {
 	 * @param radius the radius within which to find neighbors
 	 * @return a collection of neighbors within the specified radius
 	 */
+	@Override
 	public Collection<T> neighbors(Vector pos, double radius) {
-		int ndxxmin = ndxx(pos.x() - radius);
-		int ndxxmax = ndxx(pos.x() + radius);
-		int ndxymin = ndxy(pos.y() - radius);
-		int ndxymax = ndxy(pos.y() + radius);
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(pos, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
+			}
+		});
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item, without allocating
+	 * anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	@Override
+	public void forEachNeighbor(T item, double radius, Visitor<? super T> visitor) {
+		scan(item.pos().x(), item.pos().y(), radius, item, visitor, null);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	@Override
+	public void forEachNeighbor(T item, double radius, DistanceVisitor<? super T> visitor) {
+		scan(item.pos().x(), item.pos().y(), radius, item, null, visitor);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point, without allocating
+	 * anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	@Override
+	public void forEachNeighbor(Vector pos, double radius, Visitor<? super T> visitor) {
+		scan(pos.x(), pos.y(), radius, null, visitor, null);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	@Override
+	public void forEachNeighbor(Vector pos, double radius, DistanceVisitor<? super T> visitor) {
+		scan(pos.x(), pos.y(), radius, null, null, visitor);
+	}
+
+	/**
+	 * Visits every item within the specified rectangle, edges included, for example to draw only what's in a
+	 * viewport or a tile. Cells wholly inside the rectangle are visited without looking at their items'
+	 * positions.
+	 * @param minx the minimum x coordinate of the rectangle
+	 * @param miny the minimum y coordinate of the rectangle
+	 * @param maxx the maximum x coordinate of the rectangle
+	 * @param maxy the maximum y coordinate of the rectangle
+	 * @param visitor the visitor to show each item to
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachInRect(double minx, double miny, double maxx, double maxy, Visitor<? super T> visitor) {
+		int ndxxmin = geometry.ndxx(minx);
+		int ndxxmax = geometry.ndxx(maxx);
+		int ndxymin = geometry.ndxy(miny);
+		int ndxymax = geometry.ndxy(maxy);
+		long candidates = 0;
+		long found = 0;
+		for (int ndxx = ndxxmin; ndxx <= ndxxmax; ndxx++) {
+			boolean insidex = ndxx > ndxxmin && ndxx < ndxxmax;
+			for (int ndxy = ndxymin; ndxy <= ndxymax; ndxy++) {
+				int cell = geometry.ndx(ndxx, ndxy);
+				Object[] things = cells[cell];
+				candidates += counts[cell];
+				if (insidex && ndxy > ndxymin && ndxy < ndxymax) {
+					for (int i = 0; i < counts[cell]; i++) {
+						visitor.visit((T) things[i]);
+					}
+					found += counts[cell];
+				} else {
+					for (int i = 0; i < counts[cell]; i++) {
+						T thing = (T) things[i];
+						double x = thing.pos().x();
+						double y = thing.pos().y();
+						if (x >= minx && x <= maxx && y >= miny && y <= maxy) {
+							visitor.visit(thing);
+							found++;
+						}
+					}
+				}
+			}
+		}
+		if (counters != null) {
+			counters.query((long) (ndxxmax - ndxxmin + 1) * (ndxymax - ndxymin + 1), candidates, found);
+		}
+	}
+
+	/**
+	 * Finds the items nearest to the specified point, without allocating anything along the way. Cells are
+	 * searched in square rings growing outwards from the point's cell, and the search stops once nothing
+	 * beyond the rings searched so far could be nearer than the items already found.
+	 * @param pos the position of the point
+	 * @param k how many items to find
+	 * @param nearest the results to fill in, which are sorted nearest first
+	 */
+	public void nearest(Vector pos, int k, Nearest<? super T> nearest) {
+		geometry.nearest(pos.x(), pos.y(), k, null, nearest, offers, counters);
+	}
+
+	/**
+	 * Finds the items nearest to the provided item, not counting the item itself, without allocating anything
+	 * along the way.
+	 * @param item the item whose nearest neighbors to find
+	 * @param k how many items to find
+	 * @param nearest the results to fill in, which are sorted nearest first
+	 * @see #nearest(Vector, int, Nearest)
+	 */
+	public void nearest(T item, int k, Nearest<? super T> nearest) {
+		geometry.nearest(item.pos().x(), item.pos().y(), k, item, nearest, offers, counters);
+	}
+
+	/**
+	 * Visits every pair of items which are within the specified radius of each other exactly once, without
+	 * allocating anything along the way. Each cell is only paired with the cells after it, so every pair is
+	 * found and measured once rather than once from each end.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 */
+	public void forEachPairWithin(double radius, PairVisitor<? super T> visitor) {
+		pairs(radius, visitor, 0, resx + 2);
+	}
+
+	/**
+	 * Visits every pair of items which are within the specified radius of each other exactly once, splitting
+	 * the cells into strips which run on the executor, and waits for them all to finish. The visitor is called
+	 * from several threads at once, but never with the same item on two threads at once, so it may change both
+	 * items of each pair without any locking. Nothing may be put into or removed from the grid until this
+	 * returns.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 * @param exec the executor to run work on
+	 * @param numTasks how many tasks to split the work into, roughly
+	 */
+	public void forEachPairWithin(final double radius, final PairVisitor<? super T> visitor, Executor exec, int numTasks) throws InterruptedException {
+		ColumnStrips.run(exec, numTasks, resx + 2, geometry.reachx(radius), new ColumnStrips.Strip() {
+			@Override
+			public void run(int from, int to) {
+				pairs(radius, visitor, from, to);
+			}
+		});
+	}
+
+	/**
+	 * Shows every item within a radius of a point to one of two kinds of visitor.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param exclude an item to leave out, or null
+	 * @param visitor the visitor to show each neighbor to, or null
+	 * @param distanceVisitor the visitor to show each neighbor and its distance to, or null
+	 */
+	@SuppressWarnings("unchecked")
+	private void scan(double x, double y, double radius, T exclude, Visitor<? super T> visitor, DistanceVisitor<? super T> distanceVisitor) {
+		int ndxxmin = geometry.ndxx(x - radius);
+		int ndxxmax = geometry.ndxx(x + radius);
+		int ndxymin = geometry.ndxy(y - radius);
+		int ndxymax = geometry.ndxy(y + radius);
 		double rsqr = radius * radius;
-		List<T> neighbors = new ArrayList<>();
+		long candidates = 0;
+		long found = 0;
 		for (int ndxx = ndxxmin; ndxx <= ndxxmax; ndxx++) {
 			for (int ndxy = ndxymin; ndxy <= ndxymax; ndxy++) {
-				for (T neighbor : grid.get(ndx(ndxx, ndxy))) {
-					if (pos.distanceToSqr(neighbor.pos()) <= rsqr) {
-						neighbors.add(neighbor);
+				int cell = geometry.ndx(ndxx, ndxy);
+				Object[] things = cells[cell];
+				candidates += counts[cell];
+				for (int i = 0; i < counts[cell]; i++) {
+					T neighbor = (T) things[i];
+					if (neighbor != exclude) {
+						double dx = neighbor.pos().x() - x;
+						double dy = neighbor.pos().y() - y;
+						double dsqr = dx * dx + dy * dy;
+						if (dsqr <= rsqr) {
+							found++;
+							if (visitor != null) {
+								visitor.visit(neighbor);
+							} else {
+								distanceVisitor.visit(neighbor, dsqr);
+							}
+						}
 					}
 				}
 			}
 		}
-		return Collections.unmodifiableList(neighbors);
+		if (counters != null) {
+			counters.query((long) (ndxxmax - ndxxmin + 1) * (ndxymax - ndxymin + 1), candidates, found);
+		}
 	}
 
 	/**
-	 * Calculates the index x coordinate from the provided space x coordinate.
-	 * @param x the space x coordinate
-	 * @return the corresponding index x coordinate
+	 * Shows every pair within a radius whose first item is in a range of columns to a visitor, pairing each
+	 * cell with itself, with the cells above it in its column and with the columns to its right.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 * @param fromColumn the first index x coordinate
+	 * @param toColumn the index x coordinate after the last
 	 */
-	private int ndxx(double x) {
-		if (x < minx) {
-			return 0;
+	@SuppressWarnings("unchecked")
+	private void pairs(double radius, PairVisitor<? super T> visitor, int fromColumn, int toColumn) {
+		int reachx = geometry.reachx(radius);
+		int reachy = geometry.reachy(radius);
+		double rsqr = radius * radius;
+		for (int cx = fromColumn; cx < toColumn; cx++) {
+			for (int cy = 0; cy < resy + 2; cy++) {
+				int cell = geometry.ndx(cx, cy);
+				Object[] things = cells[cell];
+				for (int i = 0; i < counts[cell]; i++) {
+					T item = (T) things[i];
+					pairs(item, cell, i + 1, rsqr, visitor);
+					for (int near = cell + 1; near <= geometry.lastCell(cx, cy, reachy); near++) {
+						pairs(item, near, 0, rsqr, visitor);
+					}
+					for (int nx = cx + 1; nx <= geometry.lastColumn(cx, reachx); nx++) {
+						for (int near = geometry.firstCell(nx, cy, reachy); near <= geometry.lastCell(nx, cy, reachy); near++) {
+							pairs(item, near, 0, rsqr, visitor);
+						}
+					}
+				}
+			}
 		}
-		if (x >= maxx) {
-			return resx + 1;
+	}
+
+	/**
+	 * Shows an item paired with each item from a slot onwards in a cell which is close enough to a visitor.
+	 * @param item the first item of each pair
+	 * @param cell the index of the cell
+	 * @param from the first slot of the cell to pair with
+	 * @param rsqr the square of the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 */
+	@SuppressWarnings("unchecked")
+	private void pairs(T item, int cell, int from, double rsqr, PairVisitor<? super T> visitor) {
+		Object[] things = cells[cell];
+		double x = item.pos().x();
+		double y = item.pos().y();
+		for (int j = from; j < counts[cell]; j++) {
+			T other = (T) things[j];
+			double dx = other.pos().x() - x;
+			double dy = other.pos().y() - y;
+			double dsqr = dx * dx + dy * dy;
+			if (dsqr <= rsqr) {
+				visitor.visit(item, other, dsqr);
+			}
 		}
-		return (int) ((x - minx) / sizex) + 1;
 	}
 
 	/**
-	 * Calculates the index y coordinate from the provided space y coordinate.
-	 * @param y the space y coordinate
-	 * @return the corresponding index y coordinate
+	 * Puts an item in a cell, remembering which cell it's in.
+	 * @param item the item to put
+	 * @param cell the index of the cell
 	 */
-	private int ndxy(double y) {
-		if (y < miny) {
-			return 0;
+	private void place(T item, int cell) {
+		if (item instanceof GridHandle) {
+			GridHandle handle = (GridHandle) item;
+			handle.setGridCell(cell + 1);
+			handle.setGridSlot(add(cell, item));
+		} else {
+			add(cell, item);
+			index.put(item, cell);
 		}
-		if (y >= maxy) {
-			return resy + 1;
+	}
+
+	/**
+	 * Adds an item to the end of a cell, making room in the cell if it's full.
+	 * @param cell the index of the cell
+	 * @param item the item to add
+	 * @return the slot the item was put in
+	 */
+	private int add(int cell, T item) {
+		Object[] things = cells[cell];
+		if (things == null) {
+			things = cells[cell] = new Object[4];
+		} else if (counts[cell] == things.length) {
+			things = cells[cell] = Arrays.copyOf(things, things.length * 2);
 		}
-		return (int) ((y - miny) / sizey) + 1;
+		things[counts[cell]] = item;
+		return counts[cell]++;
 	}
 
 	/**
-	 * Calculates the index absolute coordinate from the provided index x and y coordinates
-	 * @param ndxx the index x coordinate
-	 * @param ndxy the index y coordinate
-	 * @return the corresponding index absolute coordinate
+	 * Removes the item in a slot of a cell by moving the cell's last item into its place.
+	 * @param cell the index of the cell
+	 * @param slot the slot of the item to remove
 	 */
-	private int ndx(int ndxx, int ndxy) {
-		return ndxx * (resy + 2) + ndxy;
+	private void removeAt(int cell, int slot) {
+		Object[] things = cells[cell];
+		int last = --counts[cell];
+		if (slot != last) {
+			things[slot] = things[last];
+			if (things[slot] instanceof GridHandle) {
+				((GridHandle) things[slot]).setGridSlot(slot);
+			}
+		}
+		things[last] = null;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Replaces the cells with empty ones at a new resolution.
+	 * @param resx how many cells to separate x-axis into
+	 * @param resy how many cells to separate y-axis into
+	 */
+	private void allocate(int resx, int resy) {
+		this.resx = resx;
+		this.resy = resy;
+		this.geometry = new CellGeometry(minx, maxx, miny, maxy, resx, resy);
+		cells = new Object[geometry.cells()][];
+		counts = new int[geometry.cells()];
+	}
+
+	/**
+	 * Picks a resolution with cells about as big as a radius, making the cells bigger if that would make too
+	 * many of them.
+	 * @param width the width of grid space
+	 * @param height the height of grid space
+	 * @param radius the radius of most lookups
+	 * @param expectedItems how many items the grid is expected to hold
+	 * @param maxCells the most cells the grid may have
+	 * @return how many cells to separate the x-axis and y-axis into
+	 */
+	static int[] resolution(double width, double height, double radius, int expectedItems, int maxCells) {
+		if (!(radius > 0.0)) {
+			throw new IllegalArgumentException("radius must be positive: " + radius);
+		}
+		double resx = Math.max(1.0, Math.ceil(width / radius));
+		double resy = Math.max(1.0, Math.ceil(height / radius));
+		double limit = Math.max(1.0, Math.min(maxCells, (double) expectedItems * CELLS_PER_ITEM));
+		if (resx * resy > limit) {
+			double scale = Math.sqrt(resx * resy / limit);
+			double scaledx = Math.floor(resx / scale);
+			double scaledy = Math.floor(resy / scale);
+
+			// a long, thin space can scale one axis down to no cells at all, in
+			// which case it gets one cell and the other axis gets the rest
+			if (scaledx < 1.0) {
+				resy = Math.min(resy, Math.floor(limit));
+				resx = 1.0;
+			} else if (scaledy < 1.0) {
+				resx = Math.min(resx, Math.floor(limit));
+				resy = 1.0;
+			} else {
+				resx = scaledx;
+				resy = scaledy;
+			}
+		}
+		return new int[]{(int) Math.min(resx, limit), (int) Math.min(resy, limit)};
+	}
+
+}
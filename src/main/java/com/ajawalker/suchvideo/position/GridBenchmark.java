@@ -0,0 +1,143 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares {@link Grid} with {@link CellGrid} the way the particle simulations use them: every step all items
+ * move a little and are put back into the index, and then every item asks for its neighbors; each pair of
+ * neighbors is then also visited once through the grids' pair enumeration, and a {@link NeighborGraph} of
+ * them all is built. Items are
+ * spread uniformly at about four per cell, with cells as big as the query radius, and results are reported
+ * as CSV in milliseconds per step.
+ * <p>
+ * Takes as optional arguments a comma separated list of item counts (default 10000,100000,1000000) and the
+ * number of steps to time after one step of warm up (default 3).
+ */
+public class GridBenchmark {
+	private static final double RADIUS = 10.0;
+	private static final double ITEMS_PER_CELL = 4.0;
+
+	public static void main(String[] args) {
+		String[] counts = (args.length > 0 ? args[0] : "10000,100000,1000000").split(",");
+		int numSteps = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		System.out.println("items,grid_update_ms,cellgrid_update_ms,grid_query_ms,cellgrid_query_ms,grid_pairs_ms,cellgrid_pairs_ms,graph_build_ms,neighbors_per_item");
+		for (String count : counts) {
+			int numItems = Integer.parseInt(count.trim());
+			int res = (int) Math.ceil(Math.sqrt(numItems / ITEMS_PER_CELL));
+			double side = res * RADIUS;
+			Random rnd = new Random(1);
+			List<Item> items = new ArrayList<>(numItems);
+			for (int i = 0; i < numItems; i++) {
+				items.add(new Item(new Vector(rnd.nextDouble() * side, rnd.nextDouble() * side)));
+			}
+
+			Grid<Item> grid = new Grid<>(0.0, side, 0.0, side, res, res);
+			CellGrid<Item> cellGrid = new CellGrid<>(0.0, side, 0.0, side, res, res);
+			NeighborGraph<Item> graph = new NeighborGraph<>(RADIUS);
+			long gridUpdate = 0;
+			long cellGridUpdate = 0;
+			long gridQuery = 0;
+			long cellGridQuery = 0;
+			long gridPairs = 0;
+			long cellGridPairs = 0;
+			long graphBuild = 0;
+			long found = 0;
+			for (int step = 0; step <= numSteps; step++) {
+				for (Item item : items) {
+					item.pos = item.pos.add(Vector.radial(rnd.nextDouble() * 2.0 * Math.PI, RADIUS * 0.1));
+				}
+
+				long start = System.nanoTime();
+				for (Item item : items) {
+					grid.put(item);
+				}
+				long middle = System.nanoTime();
+				cellGrid.rebuild(items);
+				long end = System.nanoTime();
+
+				long gridFound = 0;
+				for (Item item : items) {
+					gridFound += grid.neighbors(item, RADIUS).size();
+				}
+				long queried = System.nanoTime();
+				long cellGridFound = 0;
+				for (Item item : items) {
+					cellGridFound += cellGrid.neighbors(item, RADIUS).size();
+				}
+				long done = System.nanoTime();
+				if (gridFound != cellGridFound) {
+					throw new IllegalStateException("grids disagree: " + gridFound + " vs " + cellGridFound);
+				}
+
+				// every pair of neighbors is found from both ends above
+				PairCounter gridCounter = new PairCounter();
+				grid.forEachPairWithin(RADIUS, gridCounter);
+				long paired = System.nanoTime();
+				PairCounter cellGridCounter = new PairCounter();
+				cellGrid.forEachPairWithin(RADIUS, cellGridCounter);
+				long allPaired = System.nanoTime();
+				if (gridCounter.count * 2 != gridFound || cellGridCounter.count * 2 != gridFound) {
+					throw new IllegalStateException("pairs disagree with neighbors: " + gridCounter.count + " and " + cellGridCounter.count + " vs " + gridFound);
+				}
+				graph.update(items);
+				long built = System.nanoTime();
+				if (graph.size() != gridFound) {
+					throw new IllegalStateException("graph disagrees with neighbors: " + graph.size() + " vs " + gridFound);
+				}
+
+				// the first step is just to warm up
+				if (step > 0) {
+					gridUpdate += middle - start;
+					cellGridUpdate += end - middle;
+					gridQuery += queried - end;
+					cellGridQuery += done - queried;
+					gridPairs += paired - done;
+					cellGridPairs += allPaired - paired;
+					graphBuild += built - allPaired;
+					found += gridFound;
+				}
+			}
+			System.out.format("%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.2f%n",
+					numItems,
+					gridUpdate / 1.0e6 / numSteps,
+					cellGridUpdate / 1.0e6 / numSteps,
+					gridQuery / 1.0e6 / numSteps,
+					cellGridQuery / 1.0e6 / numSteps,
+					gridPairs / 1.0e6 / numSteps,
+					cellGridPairs / 1.0e6 / numSteps,
+					graphBuild / 1.0e6 / numSteps,
+					(double) found / numSteps / numItems);
+		}
+	}
+
+	/**
+	 * Counts the pairs it is shown.
+	 */
+	private static class PairCounter implements PairVisitor<Item> {
+		private long count = 0;
+
+		@Override
+		public void visit(Item a, Item b, double distanceSqr) {
+			count++;
+		}
+	}
+
+	/**
+	 * Something which moves around.
+	 */
+	private static class Item implements Positioned {
+		private Vector pos;
+
+		private Item(Vector pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		public Vector pos() {
+			return pos;
+		}
+	}
+}
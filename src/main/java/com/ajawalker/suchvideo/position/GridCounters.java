@@ -0,0 +1,66 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The running counts behind {@link GridMetrics}, which a grid only keeps while metrics are enabled. Queries
+ * may run on several threads at once, so each query adds up what it did as it goes and only touches these
+ * once, at the end.
+ */
+final class GridCounters {
+	private final AtomicLong puts = new AtomicLong();
+	private final AtomicLong removes = new AtomicLong();
+	private final AtomicLong queries = new AtomicLong();
+	private final AtomicLong cellsVisited = new AtomicLong();
+	private final AtomicLong candidates = new AtomicLong();
+	private final AtomicLong found = new AtomicLong();
+	private final AtomicLong rebuilds = new AtomicLong();
+	private final AtomicLong rebuildNanos = new AtomicLong();
+
+	/**
+	 * Counts a put.
+	 */
+	void put() {
+		puts.incrementAndGet();
+	}
+
+	/**
+	 * Counts a remove.
+	 */
+	void remove() {
+		removes.incrementAndGet();
+	}
+
+	/**
+	 * Counts a query.
+	 * @param cells how many cells the query looked in
+	 * @param examined how many items in those cells the query looked at
+	 * @param returned how many items the query found
+	 */
+	void query(long cells, long examined, long returned) {
+		queries.incrementAndGet();
+		cellsVisited.addAndGet(cells);
+		candidates.addAndGet(examined);
+		found.addAndGet(returned);
+	}
+
+	/**
+	 * Counts a rebuild.
+	 * @param nanos how long the rebuild took, in nanoseconds
+	 */
+	void rebuild(long nanos) {
+		rebuilds.incrementAndGet();
+		rebuildNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * Takes a snapshot of the counts along with how full the grid is.
+	 * @param occupancy how full the grid's cells are
+	 * @param histogram how many cells hold each number of items
+	 * @return the snapshot
+	 */
+	GridMetrics snapshot(Occupancy occupancy, long[] histogram) {
+		return new GridMetrics(occupancy, histogram, puts.get(), removes.get(), queries.get(), cellsVisited.get(),
+				candidates.get(), found.get(), rebuilds.get(), rebuildNanos.get());
+	}
+}
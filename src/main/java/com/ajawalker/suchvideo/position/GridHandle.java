@@ -0,0 +1,31 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * A positioned thing which remembers where a {@link Grid} keeps it, so the grid can move it without looking
+ * it up: staying in the same cell costs nothing and changing cells is a constant time swap. The values are
+ * only meaningful to the grid; implementations just store them, starting at zero. A thing with a handle can
+ * only be in one grid at a time.
+ */
+public interface GridHandle extends Positioned {
+	/**
+	 * Returns the cell value last set by a grid, or zero if never set.
+	 */
+	int gridCell();
+
+	/**
+	 * Stores the cell value for a grid.
+	 * @param cell the value to store
+	 */
+	void setGridCell(int cell);
+
+	/**
+	 * Returns the slot value last set by a grid, or zero if never set.
+	 */
+	int gridSlot();
+
+	/**
+	 * Stores the slot value for a grid.
+	 * @param slot the value to store
+	 */
+	void setGridSlot(int slot);
+}
@@ -0,0 +1,154 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.Arrays;
+
+/**
+ * What a grid has been doing since its metrics were enabled, along with how full its cells were when this was
+ * taken, for telling whether its resolution suits the simulation using it: many cells visited per query
+ * means cells are too small for the radius being looked up, while many candidates examined per neighbor
+ * returned means they are too big. Pairs of neighbors visited all at once aren't counted as queries.
+ */
+public final class GridMetrics {
+	/**
+	 * How many buckets the items per cell histogram has; the last bucket counts cells holding that many items
+	 * less one or more.
+	 */
+	public static final int HISTOGRAM_BUCKETS = 17;
+
+	private final Occupancy occupancy;
+	private final long[] histogram;
+	private final long puts;
+	private final long removes;
+	private final long queries;
+	private final long cellsVisited;
+	private final long candidates;
+	private final long found;
+	private final long rebuilds;
+	private final long rebuildNanos;
+
+	/**
+	 * Creates a record of what a grid has been doing.
+	 */
+	GridMetrics(Occupancy occupancy, long[] histogram, long puts, long removes, long queries, long cellsVisited,
+	            long candidates, long found, long rebuilds, long rebuildNanos) {
+		this.occupancy = occupancy;
+		this.histogram = histogram;
+		this.puts = puts;
+		this.removes = removes;
+		this.queries = queries;
+		this.cellsVisited = cellsVisited;
+		this.candidates = candidates;
+		this.found = found;
+		this.rebuilds = rebuilds;
+		this.rebuildNanos = rebuildNanos;
+	}
+
+	/**
+	 * Counts how many cells hold each number of items.
+	 * @param counts how many items each cell holds
+	 * @param from the first cell to count
+	 * @param to the cell after the last to count
+	 * @return how many cells hold each number of items, with the last bucket holding the rest
+	 */
+	static long[] histogram(int[] counts, int from, int to) {
+		long[] histogram = new long[HISTOGRAM_BUCKETS];
+		for (int cell = from; cell < to; cell++) {
+			histogram[Math.min(counts[cell], HISTOGRAM_BUCKETS - 1)]++;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Returns how full the grid's cells were.
+	 */
+	public Occupancy occupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * Returns how many cells held a number of items.
+	 * @param items the number of items, where {@link #HISTOGRAM_BUCKETS} less one means that many or more
+	 */
+	public long cellsHolding(int items) {
+		return histogram[items];
+	}
+
+	/**
+	 * Returns how many times things were put in the grid.
+	 */
+	public long puts() {
+		return puts;
+	}
+
+	/**
+	 * Returns how many times things were removed from the grid.
+	 */
+	public long removes() {
+		return removes;
+	}
+
+	/**
+	 * Returns how many queries were made of the grid.
+	 */
+	public long queries() {
+		return queries;
+	}
+
+	/**
+	 * Returns how many cells queries looked in, all told.
+	 */
+	public long cellsVisited() {
+		return cellsVisited;
+	}
+
+	/**
+	 * Returns how many items queries looked at, all told.
+	 */
+	public long candidates() {
+		return candidates;
+	}
+
+	/**
+	 * Returns how many items queries found, all told.
+	 */
+	public long found() {
+		return found;
+	}
+
+	/**
+	 * Returns how many times the grid was rebuilt or retuned.
+	 */
+	public long rebuilds() {
+		return rebuilds;
+	}
+
+	/**
+	 * Returns how long rebuilding or retuning the grid took, all told, in nanoseconds.
+	 */
+	public long rebuildNanos() {
+		return rebuildNanos;
+	}
+
+	/**
+	 * Returns the average number of cells each query looked in.
+	 */
+	public double cellsPerQuery() {
+		return queries == 0 ? 0.0 : (double) cellsVisited / queries;
+	}
+
+	/**
+	 * Returns the fraction of items looked at by queries which they found.
+	 */
+	public double hitRate() {
+		return candidates == 0 ? 0.0 : (double) found / candidates;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s; %d puts, %d removes, %d queries (%.1f cells, %.1f candidates, %.1f found each, hit rate %.2f), %d rebuilds (%.3f ms); cells holding 0..%d+ items: %s",
+				occupancy, puts, removes, queries, cellsPerQuery(),
+				queries == 0 ? 0.0 : (double) candidates / queries,
+				queries == 0 ? 0.0 : (double) found / queries,
+				hitRate(), rebuilds, rebuildNanos / 1.0e6, HISTOGRAM_BUCKETS - 1, Arrays.toString(histogram));
+	}
+}
@@ -0,0 +1,681 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * An immutable 2-dimensional index of positioned things as they were at one moment, laid out the same way as
+ * a {@link CellGrid}: things are sorted by cell into flat arrays alongside the positions they had when the
+ * snapshot was built. Nothing about a snapshot ever changes once it has been built, so any number of threads
+ * may query it at the same time while the things themselves move on.
+ * <p>
+ * Snapshots are built by {@link CellGrid}, which keeps the most recent one.
+ * @param <T> the type of thing which is indexed in this snapshot
+ */
+public final class GridSnapshot<T extends Positioned> {
+	private final CellGeometry geometry;
+	private final int resx;
+	private final int resy;
+
+	private final int[] cellStart;
+	private final Object[] items;
+	private final double[] xs;
+	private final double[] ys;
+	private final int[] indices;
+	private final GridCounters counters;
+
+	/**
+	 * Offers the items in each cell to nearest neighbors searches.
+	 */
+	private final CellGeometry.Cells<T> offers = new CellGeometry.Cells<T>() {
+		@Override
+		public int offer(int cell, double x, double y, T exclude, Nearest<? super T> nearest) {
+			for (int at = cellStart[cell]; at < cellStart[cell + 1]; at++) {
+				double dx = xs[at] - x;
+				double dy = ys[at] - y;
+				double dsqr = dx * dx + dy * dy;
+				if (dsqr < nearest.worst() && items[at] != exclude) {
+					nearest.offer(items[at], dsqr);
+				}
+			}
+			return count(cell);
+		}
+	};
+
+	/**
+	 * Constructs a snapshot from arrays which nobody else will ever change.
+	 */
+	private GridSnapshot(double minx, double maxx, double miny, double maxy, int resx, int resy,
+	                     int[] cellStart, Object[] items, double[] xs, double[] ys, int[] indices, GridCounters counters) {
+		this.geometry = new CellGeometry(minx, maxx, miny, maxy, resx, resy);
+		this.resx = resx;
+		this.resy = resy;
+		this.cellStart = cellStart;
+		this.items = items;
+		this.xs = xs;
+		this.ys = ys;
+		this.indices = indices;
+		this.counters = counters;
+	}
+
+	/**
+	 * Builds a snapshot of the provided items at their current positions. The items are split into ranges
+	 * which each count how many of their items land in each cell; a prefix sum over those counts, cell by cell
+	 * and range by range, then tells every range exactly where to put each of its items, so the ranges can be
+	 * placed without any coordination. Items end up in the same order however many ranges are used.
+	 * @param minx minimum expected x coordinate of grid space
+	 * @param maxx maximum expected x coordinate of grid space
+	 * @param miny minimum expected y coordinate of grid space
+	 * @param maxy maximum expected y coordinate of grid space
+	 * @param resx how many cells to separate x-axis into
+	 * @param resy how many cells to separate y-axis into
+	 * @param items the items to index
+	 * @param exec the executor to count and place ranges on, or null to do it all on this thread
+	 * @param numTasks how many ranges to split the items into
+	 * @param counters the counters to count queries of the snapshot in, or null
+	 * @return the new snapshot
+	 */
+	static <T extends Positioned> GridSnapshot<T> build(double minx, double maxx, double miny, double maxy, int resx, int resy,
+	                                                    Collection<? extends T> items, Executor exec, int numTasks,
+	                                                    GridCounters counters) throws InterruptedException {
+		Object[] source = items.toArray();
+		return sort(minx, maxx, miny, maxy, resx, resy, source, null, null, source.length, exec, numTasks, counters);
+	}
+
+	/**
+	 * Builds a snapshot of points given by their coordinates, in the same way as
+	 * {@link #build(double, double, double, double, int, int, Collection, Executor, int, GridCounters)}. The
+	 * snapshot holds no items, only where each point came from, so only the methods which show indices may be
+	 * used with it.
+	 * @param minx minimum expected x coordinate of grid space
+	 * @param maxx maximum expected x coordinate of grid space
+	 * @param miny minimum expected y coordinate of grid space
+	 * @param maxy maximum expected y coordinate of grid space
+	 * @param resx how many cells to separate x-axis into
+	 * @param resy how many cells to separate y-axis into
+	 * @param px the x coordinate of each point
+	 * @param py the y coordinate of each point
+	 * @param n how many points there are
+	 * @param exec the executor to count and place ranges on, or null to do it all on this thread
+	 * @param numTasks how many ranges to split the points into
+	 * @return the new snapshot
+	 */
+	static <T extends Positioned> GridSnapshot<T> build(double minx, double maxx, double miny, double maxy, int resx, int resy,
+	                                                    double[] px, double[] py, int n, Executor exec, int numTasks) throws InterruptedException {
+		return sort(minx, maxx, miny, maxy, resx, resy, null, px, py, n, exec, numTasks, null);
+	}
+
+	/**
+	 * Sorts items or points into a new snapshot.
+	 * @param source the items, or null if sorting points
+	 * @param px the x coordinate of each point, if sorting points
+	 * @param py the y coordinate of each point, if sorting points
+	 * @param n how many items or points there are
+	 * @see #build(double, double, double, double, int, int, Collection, Executor, int, GridCounters)
+	 */
+	private static <T extends Positioned> GridSnapshot<T> sort(double minx, double maxx, double miny, double maxy, int resx, int resy,
+	                                                           final Object[] source, final double[] px, final double[] py, final int n,
+	                                                           Executor exec, int numTasks, GridCounters counters) throws InterruptedException {
+		final GridSnapshot<T> grid = new GridSnapshot<>(minx, maxx, miny, maxy, resx, resy,
+				new int[(resx + 2) * (resy + 2) + 1], source == null ? null : new Object[n], new double[n], new double[n],
+				new int[n], counters);
+		final int numCells = grid.cellStart.length - 1;
+		final int tasks = exec == null ? 1 : Math.max(1, Math.min(numTasks, n / 1024));
+		final int[] cellOf = new int[n];
+		final int[][] counts = new int[tasks][numCells];
+
+		// each range counts how many of its items land in each cell
+		parallel(exec, tasks, n, new Range() {
+			@Override
+			public void run(int task, int from, int to) {
+				int[] count = counts[task];
+				for (int i = from; i < to; i++) {
+					int cell;
+					if (source != null) {
+						Vector pos = ((Positioned) source[i]).pos();
+						cell = grid.geometry.ndx(grid.geometry.ndxx(pos.x()), grid.geometry.ndxy(pos.y()));
+					} else {
+						cell = grid.geometry.ndx(grid.geometry.ndxx(px[i]), grid.geometry.ndxy(py[i]));
+					}
+					cellOf[i] = cell;
+					count[cell]++;
+				}
+			}
+		});
+
+		// turn the counts into where each range starts putting its items in
+		// each cell; earlier ranges go first so the order doesn't depend on
+		// how many ranges there are
+		int at = 0;
+		for (int c = 0; c < numCells; c++) {
+			grid.cellStart[c] = at;
+			for (int t = 0; t < tasks; t++) {
+				int count = counts[t][c];
+				counts[t][c] = at;
+				at += count;
+			}
+		}
+		grid.cellStart[numCells] = at;
+
+		// and then each range drops its items into place
+		parallel(exec, tasks, n, new Range() {
+			@Override
+			public void run(int task, int from, int to) {
+				int[] next = counts[task];
+				for (int i = from; i < to; i++) {
+					int slot = next[cellOf[i]]++;
+					if (source != null) {
+						Vector pos = ((Positioned) source[i]).pos();
+						grid.items[slot] = source[i];
+						grid.xs[slot] = pos.x();
+						grid.ys[slot] = pos.y();
+					} else {
+						grid.xs[slot] = px[i];
+						grid.ys[slot] = py[i];
+					}
+					grid.indices[slot] = i;
+				}
+			}
+		});
+		return grid;
+	}
+
+	/**
+	 * Returns how many items are in the snapshot.
+	 */
+	public int size() {
+		return indices.length;
+	}
+
+	/**
+	 * Works out how full the snapshot's cells are, which takes a look at every cell.
+	 * @return how full the snapshot's cells are
+	 */
+	public Occupancy occupancy() {
+		int occupied = 0;
+		int most = 0;
+		for (int cell = 0; cell < cellStart.length - 1; cell++) {
+			int count = cellStart[cell + 1] - cellStart[cell];
+			occupied += count > 0 ? 1 : 0;
+			most = Math.max(most, count);
+		}
+		int outside = 0;
+		for (int ndxx = 0; ndxx < resx + 2; ndxx++) {
+			outside += count(geometry.ndx(ndxx, 0)) + count(geometry.ndx(ndxx, resy + 1));
+		}
+		for (int ndxy = 1; ndxy <= resy; ndxy++) {
+			outside += count(geometry.ndx(0, ndxy)) + count(geometry.ndx(resx + 1, ndxy));
+		}
+		return new Occupancy(resx, resy, indices.length, occupied, most, outside);
+	}
+
+	/**
+	 * Counts how many cells hold each number of items.
+	 * @return how many cells hold each number of items, as in {@link GridMetrics}
+	 */
+	long[] histogram() {
+		int[] counts = new int[cellStart.length - 1];
+		for (int cell = 0; cell < counts.length; cell++) {
+			counts[cell] = count(cell);
+		}
+		return GridMetrics.histogram(counts, 0, counts.length);
+	}
+
+	/**
+	 * Returns all neighbors which are within the specified radius of the provided item.
+	 * @param item the item whose neighbors to find
+	 * @param radius the radius within which to find neighbors
+	 * @return a collection of neighbors within the specified radius
+	 */
+	public Collection<T> neighbors(T item, double radius) {
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(item, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
+			}
+		});
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	/**
+	 * Returns all neighbors which are within the specified radius of the specified point.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to find neighbors
+	 * @return a collection of neighbors within the specified radius
+	 */
+	public Collection<T> neighbors(Vector pos, double radius) {
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(pos, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
+			}
+		});
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item, without allocating
+	 * anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(T item, double radius, Visitor<? super T> visitor) {
+		scan(item.pos().x(), item.pos().y(), radius, item, visitor, null);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(T item, double radius, DistanceVisitor<? super T> visitor) {
+		scan(item.pos().x(), item.pos().y(), radius, item, null, visitor);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point, without allocating
+	 * anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(Vector pos, double radius, Visitor<? super T> visitor) {
+		scan(pos.x(), pos.y(), radius, null, visitor, null);
+	}
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	public void forEachNeighbor(Vector pos, double radius, DistanceVisitor<? super T> visitor) {
+		scan(pos.x(), pos.y(), radius, null, null, visitor);
+	}
+
+	/**
+	 * Visits every item within the specified rectangle, edges included, as they were when the snapshot was
+	 * built, for example to draw only what's in a viewport or a tile. Cells wholly inside the rectangle are
+	 * visited without looking at their items' positions.
+	 * @param minx the minimum x coordinate of the rectangle
+	 * @param miny the minimum y coordinate of the rectangle
+	 * @param maxx the maximum x coordinate of the rectangle
+	 * @param maxy the maximum y coordinate of the rectangle
+	 * @param visitor the visitor to show each item to
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachInRect(double minx, double miny, double maxx, double maxy, Visitor<? super T> visitor) {
+		int ndxxmin = geometry.ndxx(minx);
+		int ndxxmax = geometry.ndxx(maxx);
+		int ndxymin = geometry.ndxy(miny);
+		int ndxymax = geometry.ndxy(maxy);
+		long candidates = 0;
+		long found = 0;
+		for (int ndxx = ndxxmin; ndxx <= ndxxmax; ndxx++) {
+			int from = cellStart[geometry.ndx(ndxx, ndxymin)];
+			int to = cellStart[geometry.ndx(ndxx, ndxymax) + 1];
+			candidates += to - from;
+			if (ndxx > ndxxmin && ndxx < ndxxmax) {
+				// only the end cells of inner columns need checking
+				int innerFrom = cellStart[geometry.ndx(ndxx, ndxymin) + 1];
+				int innerTo = ndxymax > ndxymin ? cellStart[geometry.ndx(ndxx, ndxymax)] : innerFrom;
+				found += visit(from, innerFrom, minx, miny, maxx, maxy, visitor);
+				for (int at = innerFrom; at < innerTo; at++) {
+					visitor.visit((T) items[at]);
+				}
+				found += innerTo - innerFrom;
+				found += visit(innerTo, to, minx, miny, maxx, maxy, visitor);
+			} else {
+				found += visit(from, to, minx, miny, maxx, maxy, visitor);
+			}
+		}
+		if (counters != null) {
+			counters.query((long) (ndxxmax - ndxxmin + 1) * (ndxymax - ndxymin + 1), candidates, found);
+		}
+	}
+
+	/**
+	 * Finds the items nearest to the specified point, without allocating anything along the way. Cells are
+	 * searched in square rings growing outwards from the point's cell, and the search stops once nothing
+	 * beyond the rings searched so far could be nearer than the items already found.
+	 * @param pos the position of the point
+	 * @param k how many items to find
+	 * @param nearest the results to fill in, which are sorted nearest first
+	 */
+	public void nearest(Vector pos, int k, Nearest<? super T> nearest) {
+		geometry.nearest(pos.x(), pos.y(), k, null, nearest, offers, counters);
+	}
+
+	/**
+	 * Finds the items nearest to the provided item, not counting the item itself, without allocating anything
+	 * along the way.
+	 * @param item the item whose nearest neighbors to find
+	 * @param k how many items to find
+	 * @param nearest the results to fill in, which are sorted nearest first
+	 * @see #nearest(Vector, int, Nearest)
+	 */
+	public void nearest(T item, int k, Nearest<? super T> nearest) {
+		geometry.nearest(item.pos().x(), item.pos().y(), k, item, nearest, offers, counters);
+	}
+
+	/**
+	 * Visits every pair of items which are within the specified radius of each other exactly once, without
+	 * allocating anything along the way. Each cell is only paired with the cells after it, so every pair is
+	 * found and measured once rather than once from each end.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 */
+	public void forEachPairWithin(double radius, PairVisitor<? super T> visitor) {
+		pairs(radius, visitor, 0, resx + 2);
+	}
+
+	/**
+	 * Visits every pair of items which are within the specified radius of each other exactly once, splitting
+	 * the cells into strips which run on the executor, and waits for them all to finish. The visitor is called
+	 * from several threads at once, but never with the same item on two threads at once, so it may change both
+	 * items of each pair without any locking.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 * @param exec the executor to run work on
+	 * @param numTasks how many tasks to split the work into, roughly
+	 */
+	public void forEachPairWithin(final double radius, final PairVisitor<? super T> visitor, Executor exec, int numTasks) throws InterruptedException {
+		ColumnStrips.run(exec, numTasks, resx + 2, geometry.reachx(radius), new ColumnStrips.Strip() {
+			@Override
+			public void run(int from, int to) {
+				pairs(radius, visitor, from, to);
+			}
+		});
+	}
+
+	/**
+	 * Shows every item within a radius of a point to one of two kinds of visitor.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param exclude an item to leave out, or null
+	 * @param visitor the visitor to show each neighbor to, or null
+	 * @param distanceVisitor the visitor to show each neighbor and its distance to, or null
+	 */
+	@SuppressWarnings("unchecked")
+	private void scan(double x, double y, double radius, T exclude, Visitor<? super T> visitor, DistanceVisitor<? super T> distanceVisitor) {
+		int ndxxmin = geometry.ndxx(x - radius);
+		int ndxxmax = geometry.ndxx(x + radius);
+		int ndxymin = geometry.ndxy(y - radius);
+		int ndxymax = geometry.ndxy(y + radius);
+		double rsqr = radius * radius;
+		long candidates = 0;
+		long found = 0;
+		for (int ndxx = ndxxmin; ndxx <= ndxxmax; ndxx++) {
+			// cells along the y-axis are next to each other, so a column of
+			// cells is one run of items
+			int from = cellStart[geometry.ndx(ndxx, ndxymin)];
+			int to = cellStart[geometry.ndx(ndxx, ndxymax) + 1];
+			candidates += to - from;
+			for (int at = from; at < to; at++) {
+				double dx = xs[at] - x;
+				double dy = ys[at] - y;
+				double dsqr = dx * dx + dy * dy;
+				if (items[at] != exclude && dsqr <= rsqr) {
+					found++;
+					if (visitor != null) {
+						visitor.visit((T) items[at]);
+					} else {
+						distanceVisitor.visit((T) items[at], dsqr);
+					}
+				}
+			}
+		}
+		if (counters != null) {
+			counters.query((long) (ndxxmax - ndxxmin + 1) * (ndxymax - ndxymin + 1), candidates, found);
+		}
+	}
+
+	/**
+	 * Shows every item in a run of items which is within a rectangle to a visitor.
+	 * @param from the first item of the run
+	 * @param to the item after the last of the run
+	 * @param minx the minimum x coordinate of the rectangle
+	 * @param miny the minimum y coordinate of the rectangle
+	 * @param maxx the maximum x coordinate of the rectangle
+	 * @param maxy the maximum y coordinate of the rectangle
+	 * @param visitor the visitor to show each item to
+	 * @return how many items were within the rectangle
+	 */
+	@SuppressWarnings("unchecked")
+	private int visit(int from, int to, double minx, double miny, double maxx, double maxy, Visitor<? super T> visitor) {
+		int found = 0;
+		for (int at = from; at < to; at++) {
+			if (xs[at] >= minx && xs[at] <= maxx && ys[at] >= miny && ys[at] <= maxy) {
+				visitor.visit((T) items[at]);
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Shows where in the collection the snapshot was built from each item within a radius of a point came
+	 * from, for building neighbor graphs.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param exclude where in the collection an item to leave out came from, or -1
+	 * @param visitor the visitor to show each neighbor's index to
+	 */
+	void forEachIndexWithin(double x, double y, double radius, int exclude, IndexVisitor visitor) {
+		int ndxxmin = geometry.ndxx(x - radius);
+		int ndxxmax = geometry.ndxx(x + radius);
+		int ndxymin = geometry.ndxy(y - radius);
+		int ndxymax = geometry.ndxy(y + radius);
+		double rsqr = radius * radius;
+		for (int ndxx = ndxxmin; ndxx <= ndxxmax; ndxx++) {
+			int from = cellStart[geometry.ndx(ndxx, ndxymin)];
+			int to = cellStart[geometry.ndx(ndxx, ndxymax) + 1];
+			for (int at = from; at < to; at++) {
+				double dx = xs[at] - x;
+				double dy = ys[at] - y;
+				if (indices[at] != exclude && dx * dx + dy * dy <= rsqr) {
+					visitor.visit(indices[at]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Shows where in the collection the snapshot was built from each item within a rectangle, edges included,
+	 * came from.
+	 * @param minx the minimum x coordinate of the rectangle
+	 * @param miny the minimum y coordinate of the rectangle
+	 * @param maxx the maximum x coordinate of the rectangle
+	 * @param maxy the maximum y coordinate of the rectangle
+	 * @param visitor the visitor to show each item's index to
+	 */
+	void forEachIndexInRect(double minx, double miny, double maxx, double maxy, IndexVisitor visitor) {
+		int ndxxmin = geometry.ndxx(minx);
+		int ndxxmax = geometry.ndxx(maxx);
+		int ndxymin = geometry.ndxy(miny);
+		int ndxymax = geometry.ndxy(maxy);
+		for (int ndxx = ndxxmin; ndxx <= ndxxmax; ndxx++) {
+			int from = cellStart[geometry.ndx(ndxx, ndxymin)];
+			int to = cellStart[geometry.ndx(ndxx, ndxymax) + 1];
+			for (int at = from; at < to; at++) {
+				if (xs[at] >= minx && xs[at] <= maxx && ys[at] >= miny && ys[at] <= maxy) {
+					visitor.visit(indices[at]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Shows where in the collection the snapshot was built from both items of every pair within a radius of
+	 * each other came from, exactly once, in the same order as
+	 * {@link #forEachPairWithin(double, PairVisitor)} shows the items themselves.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair's indices to
+	 */
+	void forEachIndexPairWithin(double radius, IndexPairVisitor visitor) {
+		indexPairs(radius, visitor, 0, resx + 2);
+	}
+
+	/**
+	 * Shows where in the collection the snapshot was built from both items of every pair within a radius of
+	 * each other came from, exactly once, splitting the cells into strips as in
+	 * {@link #forEachPairWithin(double, PairVisitor, Executor, int)}.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair's indices to
+	 * @param exec the executor to run work on
+	 * @param numTasks how many tasks to split the work into, roughly
+	 */
+	void forEachIndexPairWithin(final double radius, final IndexPairVisitor visitor, Executor exec, int numTasks) throws InterruptedException {
+		ColumnStrips.run(exec, numTasks, resx + 2, geometry.reachx(radius), new ColumnStrips.Strip() {
+			@Override
+			public void run(int from, int to) {
+				indexPairs(radius, visitor, from, to);
+			}
+		});
+	}
+
+	/**
+	 * Shows every pair within a radius whose first item is in a range of columns to a visitor, pairing each
+	 * cell with the rest of its column above it and with the columns to its right.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair to
+	 * @param fromColumn the first index x coordinate
+	 * @param toColumn the index x coordinate after the last
+	 */
+	@SuppressWarnings("unchecked")
+	private void pairs(double radius, PairVisitor<? super T> visitor, int fromColumn, int toColumn) {
+		int reachx = geometry.reachx(radius);
+		int reachy = geometry.reachy(radius);
+		double rsqr = radius * radius;
+		for (int cx = fromColumn; cx < toColumn; cx++) {
+			for (int cy = 0; cy < resy + 2; cy++) {
+				int cell = geometry.ndx(cx, cy);
+				int up = cellStart[geometry.lastCell(cx, cy, reachy) + 1];
+				for (int a = cellStart[cell]; a < cellStart[cell + 1]; a++) {
+					// the rest of this cell and the cells above it are one run
+					for (int b = a + 1; b < up; b++) {
+						double dx = xs[b] - xs[a];
+						double dy = ys[b] - ys[a];
+						double dsqr = dx * dx + dy * dy;
+						if (dsqr <= rsqr) {
+							visitor.visit((T) items[a], (T) items[b], dsqr);
+						}
+					}
+					for (int nx = cx + 1; nx <= geometry.lastColumn(cx, reachx); nx++) {
+						int from = cellStart[geometry.firstCell(nx, cy, reachy)];
+						int to = cellStart[geometry.lastCell(nx, cy, reachy) + 1];
+						for (int b = from; b < to; b++) {
+							double dx = xs[b] - xs[a];
+							double dy = ys[b] - ys[a];
+							double dsqr = dx * dx + dy * dy;
+							if (dsqr <= rsqr) {
+								visitor.visit((T) items[a], (T) items[b], dsqr);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Shows the indices of every pair within a radius whose first item is in a range of columns to a visitor,
+	 * in the same way as {@link #pairs(double, PairVisitor, int, int)}.
+	 * @param radius the radius within which to visit pairs
+	 * @param visitor the visitor to show each pair's indices to
+	 * @param fromColumn the first index x coordinate
+	 * @param toColumn the index x coordinate after the last
+	 */
+	private void indexPairs(double radius, IndexPairVisitor visitor, int fromColumn, int toColumn) {
+		int reachx = geometry.reachx(radius);
+		int reachy = geometry.reachy(radius);
+		double rsqr = radius * radius;
+		for (int cx = fromColumn; cx < toColumn; cx++) {
+			for (int cy = 0; cy < resy + 2; cy++) {
+				int cell = geometry.ndx(cx, cy);
+				int up = cellStart[geometry.lastCell(cx, cy, reachy) + 1];
+				for (int a = cellStart[cell]; a < cellStart[cell + 1]; a++) {
+					for (int b = a + 1; b < up; b++) {
+						double dx = xs[b] - xs[a];
+						double dy = ys[b] - ys[a];
+						double dsqr = dx * dx + dy * dy;
+						if (dsqr <= rsqr) {
+							visitor.visit(indices[a], indices[b], dsqr);
+						}
+					}
+					for (int nx = cx + 1; nx <= geometry.lastColumn(cx, reachx); nx++) {
+						int from = cellStart[geometry.firstCell(nx, cy, reachy)];
+						int to = cellStart[geometry.lastCell(nx, cy, reachy) + 1];
+						for (int b = from; b < to; b++) {
+							double dx = xs[b] - xs[a];
+							double dy = ys[b] - ys[a];
+							double dsqr = dx * dx + dy * dy;
+							if (dsqr <= rsqr) {
+								visitor.visit(indices[a], indices[b], dsqr);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns how many items a cell holds.
+	 * @param cell the index of the cell
+	 */
+	private int count(int cell) {
+		return cellStart[cell + 1] - cellStart[cell];
+	}
+
+	/**
+	 * Splits a range of indices into tasks and runs them on the executor, waiting for them all to finish. With
+	 * no executor the tasks are simply run one after another.
+	 * @param exec the executor to run on, or null
+	 * @param tasks how many tasks to split the range into
+	 * @param n the size of the range
+	 * @param range the work to do for each part of the range
+	 */
+	static void parallel(Executor exec, int tasks, int n, final Range range) throws InterruptedException {
+		if (exec == null || tasks == 1) {
+			range.run(0, 0, n);
+			return;
+		}
+		final CountDownLatch latch = new CountDownLatch(tasks);
+		for (int t = 0; t < tasks; t++) {
+			final int task = t;
+			final int from = (int) ((long) n * t / tasks);
+			final int to = (int) ((long) n * (t + 1) / tasks);
+			exec.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						range.run(task, from, to);
+					} finally {
+						latch.countDown();
+					}
+				}
+			});
+		}
+		latch.await();
+	}
+
+	/**
+	 * A piece of work over part of a range of indices.
+	 */
+	interface Range {
+		void run(int task, int from, int to);
+	}
+}
@@ -0,0 +1,365 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.*;
+
+/**
+ * A 2-dimensional index of positioned things which, like {@link Grid}, separates space into equal sized cells,
+ * but which has no extents: cells are found by hashing their coordinates, and only cells which have held
+ * something take up any room. Things can go anywhere without piling up in the border cells of a grid, so
+ * lookups stay fast however far things stray.
+ * <p>
+ * Cells are kept in an open addressed hash table. Cells which empty out stay in the table until it next grows,
+ * when they're left behind, so things wandering about don't leave an ever growing trail of empty cells.
+ * Things which implement {@link GridHandle} are moved without any hash map lookups, as in a grid.
+ * @param <T> the type of thing which will be indexed in this grid
+ */
+public class HashedGrid<T extends Positioned> implements SpatialIndex<T> {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final double size;
+	private final Map<T, Integer> index = new HashMap<>();
+
+	private long[] keys;
+	private Object[][] cells;
+	private int[] counts;
+	private int used = 0;
+	private int shift;
+	private int numItems = 0;
+
+	/**
+	 * Constructs an empty grid.
+	 * @param size the width and height of each cell; cells about as big as the radius of most lookups are best
+	 */
+	public HashedGrid(double size) {
+		if (!(size > 0.0)) {
+			throw new IllegalArgumentException("cell size must be positive: " + size);
+		}
+		this.size = size;
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Returns how many items are in the grid.
+	 */
+	public int size() {
+		return numItems;
+	}
+
+	@Override
+	public boolean put(T item) {
+		long key = key(item.pos().x(), item.pos().y());
+		if (item instanceof GridHandle) {
+			// handles keep their slot plus one, so zero means not in the grid
+			GridHandle handle = (GridHandle) item;
+			int current = handle.gridCell() - 1;
+			if (current >= 0 && keys[current] == key) {
+				return false;
+			}
+			if (current >= 0) {
+				removeAt(current, handle.gridSlot());
+			} else {
+				numItems++;
+			}
+			int slot = slot(key);
+			handle.setGridSlot(add(slot, item));
+			handle.setGridCell(slot + 1);
+			return current < 0;
+		}
+		Integer current = index.get(item);
+		if (current != null) {
+			if (keys[current] == key) {
+				return false;
+			}
+			removeFrom(current, item);
+		} else {
+			numItems++;
+		}
+		int slot = slot(key);
+		add(slot, item);
+		index.put(item, slot);
+		return current == null;
+	}
+
+	@Override
+	public boolean remove(T item) {
+		if (item instanceof GridHandle) {
+			GridHandle handle = (GridHandle) item;
+			if (handle.gridCell() == 0) {
+				return false;
+			}
+			removeAt(handle.gridCell() - 1, handle.gridSlot());
+			handle.setGridCell(0);
+			numItems--;
+			return true;
+		}
+		Integer slot = index.remove(item);
+		if (slot == null) {
+			return false;
+		}
+		removeFrom(slot, item);
+		numItems--;
+		return true;
+	}
+
+	@Override
+	public Collection<T> neighbors(T item, double radius) {
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(item, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
+			}
+		});
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	@Override
+	public Collection<T> neighbors(Vector pos, double radius) {
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(pos, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
+			}
+		});
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	@Override
+	public void forEachNeighbor(T item, double radius, Visitor<? super T> visitor) {
+		scan(item.pos().x(), item.pos().y(), radius, item, visitor, null);
+	}
+
+	@Override
+	public void forEachNeighbor(T item, double radius, DistanceVisitor<? super T> visitor) {
+		scan(item.pos().x(), item.pos().y(), radius, item, null, visitor);
+	}
+
+	@Override
+	public void forEachNeighbor(Vector pos, double radius, Visitor<? super T> visitor) {
+		scan(pos.x(), pos.y(), radius, null, visitor, null);
+	}
+
+	@Override
+	public void forEachNeighbor(Vector pos, double radius, DistanceVisitor<? super T> visitor) {
+		scan(pos.x(), pos.y(), radius, null, null, visitor);
+	}
+
+	/**
+	 * Shows every item within a radius of a point to one of two kinds of visitor. Cells are looked up one by
+	 * one, unless the radius covers more cells than the table holds, in which case every cell in the table
+	 * is checked instead.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param exclude an item to leave out, or null
+	 * @param visitor the visitor to show each neighbor to, or null
+	 * @param distanceVisitor the visitor to show each neighbor and its distance to, or null
+	 */
+	private void scan(double x, double y, double radius, T exclude, Visitor<? super T> visitor, DistanceVisitor<? super T> distanceVisitor) {
+		long cxmin = coordinate(x - radius);
+		long cxmax = coordinate(x + radius);
+		long cymin = coordinate(y - radius);
+		long cymax = coordinate(y + radius);
+		double rsqr = radius * radius;
+		if ((double) (cxmax - cxmin + 1) * (cymax - cymin + 1) > keys.length) {
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (cells[slot] != null) {
+					scan(slot, x, y, rsqr, exclude, visitor, distanceVisitor);
+				}
+			}
+		} else {
+			for (long cx = cxmin; cx <= cxmax; cx++) {
+				for (long cy = cymin; cy <= cymax; cy++) {
+					int slot = find(cx << 32 | (cy & 0xffffffffL));
+					if (slot >= 0) {
+						scan(slot, x, y, rsqr, exclude, visitor, distanceVisitor);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Shows every item within a radius of a point in one cell to one of two kinds of visitor.
+	 * @param slot the slot of the cell
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param rsqr the square of the radius within which to visit neighbors
+	 * @param exclude an item to leave out, or null
+	 * @param visitor the visitor to show each neighbor to, or null
+	 * @param distanceVisitor the visitor to show each neighbor and its distance to, or null
+	 */
+	@SuppressWarnings("unchecked")
+	private void scan(int slot, double x, double y, double rsqr, T exclude, Visitor<? super T> visitor, DistanceVisitor<? super T> distanceVisitor) {
+		Object[] things = cells[slot];
+		for (int i = 0; i < counts[slot]; i++) {
+			T neighbor = (T) things[i];
+			if (neighbor != exclude) {
+				double dx = neighbor.pos().x() - x;
+				double dy = neighbor.pos().y() - y;
+				double dsqr = dx * dx + dy * dy;
+				if (dsqr <= rsqr) {
+					if (visitor != null) {
+						visitor.visit(neighbor);
+					} else {
+						distanceVisitor.visit(neighbor, dsqr);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds an item to the end of a cell, making room in the cell if it's full.
+	 * @param slot the slot of the cell
+	 * @param item the item to add
+	 * @return where in the cell the item was put
+	 */
+	private int add(int slot, T item) {
+		Object[] things = cells[slot];
+		if (counts[slot] == things.length) {
+			things = cells[slot] = Arrays.copyOf(things, things.length * 2);
+		}
+		things[counts[slot]] = item;
+		return counts[slot]++;
+	}
+
+	/**
+	 * Removes an item from a cell, wherever in the cell it is.
+	 * @param slot the slot of the cell
+	 * @param item the item to remove
+	 */
+	private void removeFrom(int slot, T item) {
+		Object[] things = cells[slot];
+		for (int i = 0; i < counts[slot]; i++) {
+			if (things[i] == item) {
+				removeAt(slot, i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes the item at a place in a cell by moving the cell's last item into its place.
+	 * @param slot the slot of the cell
+	 * @param i the place in the cell of the item to remove
+	 */
+	private void removeAt(int slot, int i) {
+		Object[] things = cells[slot];
+		int last = --counts[slot];
+		if (i != last) {
+			things[i] = things[last];
+			if (things[i] instanceof GridHandle) {
+				((GridHandle) things[i]).setGridSlot(i);
+			}
+		}
+		things[last] = null;
+	}
+
+	/**
+	 * Returns the slot of the cell with a key, adding an empty cell if there isn't one yet.
+	 * @param key the key of the cell
+	 * @return the slot of the cell
+	 */
+	private int slot(long key) {
+		int slot = find(key);
+		if (slot >= 0) {
+			return slot;
+		}
+		if ((used + 1) * 2 > keys.length) {
+			// the cell goes somewhere else in the new table
+			rehash();
+			slot = find(key);
+		}
+		slot = -slot - 1;
+		keys[slot] = key;
+		cells[slot] = new Object[4];
+		used++;
+		return slot;
+	}
+
+	/**
+	 * Finds the slot of the cell with a key.
+	 * @param key the key of the cell
+	 * @return the slot of the cell if there is one, otherwise minus one minus the slot where it would go
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) ((key * 0x9e3779b97f4a7c15L) >>> shift);
+		while (cells[slot] != null) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -slot - 1;
+	}
+
+	/**
+	 * Rebuilds the table, leaving behind any cells which have emptied out, and doubling its size if it's
+	 * still more than a quarter full. Everything which remembers the slot of its cell is told its new one.
+	 */
+	@SuppressWarnings("unchecked")
+	private void rehash() {
+		long[] oldKeys = keys;
+		Object[][] oldCells = cells;
+		int[] oldCounts = counts;
+		int occupied = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldCells[slot] != null && oldCounts[slot] > 0) {
+				occupied++;
+			}
+		}
+		allocate(occupied * 4 > oldKeys.length ? oldKeys.length * 2 : oldKeys.length);
+		for (int old = 0; old < oldKeys.length; old++) {
+			if (oldCells[old] != null && oldCounts[old] > 0) {
+				int slot = -find(oldKeys[old]) - 1;
+				keys[slot] = oldKeys[old];
+				cells[slot] = oldCells[old];
+				counts[slot] = oldCounts[old];
+				used++;
+				for (int i = 0; i < counts[slot]; i++) {
+					Object thing = cells[slot][i];
+					if (thing instanceof GridHandle) {
+						((GridHandle) thing).setGridCell(slot + 1);
+					} else {
+						index.put((T) thing, slot);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the table with an empty one.
+	 * @param capacity how many slots the table has, which must be a power of two
+	 */
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		cells = new Object[capacity][];
+		counts = new int[capacity];
+		used = 0;
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	/**
+	 * Calculates the key of the cell holding a point.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the key of the cell
+	 */
+	private long key(double x, double y) {
+		return coordinate(x) << 32 | (coordinate(y) & 0xffffffffL);
+	}
+
+	/**
+	 * Calculates the cell coordinate along an axis from a space coordinate, which is limited to what fits in
+	 * half a key.
+	 * @param x the space coordinate
+	 * @return the cell coordinate
+	 */
+	private long coordinate(double x) {
+		return (long) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.floor(x / size)));
+	}
+}
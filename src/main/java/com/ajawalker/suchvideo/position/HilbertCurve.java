@@ -0,0 +1,84 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * Maps positions within a rectangle onto a Hilbert curve, a path which visits every cell of a square grid
+ * without jumping, so that positions close together along the curve are close together in space. Sorting
+ * things by where they are on the curve therefore keeps neighbors near each other in memory.
+ */
+public class HilbertCurve {
+	private static final int ORDER = 16;
+	private static final int SIDE = 1 << ORDER;
+
+	private final double minx;
+	private final double miny;
+	private final double scale;
+
+	/**
+	 * Creates a curve covering the provided rectangle. Positions outside of it are clamped onto its edges.
+	 * @param minx minimum x coordinate of the rectangle
+	 * @param maxx maximum x coordinate of the rectangle
+	 * @param miny minimum y coordinate of the rectangle
+	 * @param maxy maximum y coordinate of the rectangle
+	 */
+	public HilbertCurve(double minx, double maxx, double miny, double maxy) {
+		this.minx = minx;
+		this.miny = miny;
+		double size = Math.max(maxx - minx, maxy - miny);
+		this.scale = size > 0.0 ? SIDE / size : 0.0;
+	}
+
+	/**
+	 * Finds how far along the curve a position is.
+	 * @param x the x coordinate of the position
+	 * @param y the y coordinate of the position
+	 * @return the distance along the curve, from zero to just under 2^32
+	 */
+	public long index(double x, double y) {
+		return index(cell(x, minx), cell(y, miny));
+	}
+
+	/**
+	 * Finds how far along the curve a position is.
+	 * @param pos the position
+	 * @return the distance along the curve, from zero to just under 2^32
+	 */
+	public long index(Vector pos) {
+		return index(pos.x(), pos.y());
+	}
+
+	/**
+	 * Converts a coordinate into a cell along one axis of the curve's grid.
+	 * @param value the coordinate
+	 * @param min the minimum coordinate along the axis
+	 * @return the cell
+	 */
+	private int cell(double value, double min) {
+		return (int) Math.max(0, Math.min(SIDE - 1, (value - min) * scale));
+	}
+
+	/**
+	 * Finds how far along the curve a grid cell is, working down from the biggest quadrants to the smallest
+	 * and turning the cell around to match the way the curve runs through each quadrant.
+	 * @param x the cell along the x-axis
+	 * @param y the cell along the y-axis
+	 * @return the distance along the curve
+	 */
+	private static long index(int x, int y) {
+		long d = 0;
+		for (int s = SIDE / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			if (ry == 0) {
+				if (rx == 1) {
+					x = SIDE - 1 - x;
+					y = SIDE - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+}
@@ -0,0 +1,14 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * Something which is shown the indices of pairs of items one pair at a time, rather than the items themselves.
+ */
+interface IndexPairVisitor {
+	/**
+	 * Visits the indices of a pair of items.
+	 * @param a the index of one item of the pair
+	 * @param b the index of the other item of the pair
+	 * @param distanceSqr the square of the distance between the items
+	 */
+	void visit(int a, int b, double distanceSqr);
+}
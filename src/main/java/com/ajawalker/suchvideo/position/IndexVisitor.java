@@ -0,0 +1,13 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * Something which is shown the indices of items one at a time, rather than the items themselves, e.g. the
+ * particles of a {@link ParticleSystem} found by a spatial query.
+ */
+public interface IndexVisitor {
+	/**
+	 * Visits the index of an item.
+	 * @param index the index
+	 */
+	void visit(int index);
+}
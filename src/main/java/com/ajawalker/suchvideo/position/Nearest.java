@@ -0,0 +1,141 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * The results of a nearest neighbors query, which can be reused from one query to the next so queries don't
+ * allocate anything. While a query runs the results are kept as a max-heap on distance, so the furthest of
+ * the nearest items found so far is always on top and can be swapped out cheaply for a closer one; once the
+ * query is done they are sorted nearest first.
+ * @param <T> the type of item found
+ */
+public final class Nearest<T> {
+	private Object[] items;
+	private double[] distanceSqrs;
+	private int k = 0;
+	private int size = 0;
+
+	/**
+	 * Creates empty results with room for the specified number of items; queries for more items will make room
+	 * as needed.
+	 * @param capacity how many items to make room for
+	 */
+	public Nearest(int capacity) {
+		items = new Object[capacity];
+		distanceSqrs = new double[capacity];
+	}
+
+	/**
+	 * Returns how many items were found, which is fewer than asked for only if there weren't enough items.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns one of the items found.
+	 * @param i the index of the item, where 0 is the nearest
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int i) {
+		if (i >= size) {
+			throw new IndexOutOfBoundsException(i + " >= " + size);
+		}
+		return (T) items[i];
+	}
+
+	/**
+	 * Returns the square of the distance to one of the items found.
+	 * @param i the index of the item, where 0 is the nearest
+	 */
+	public double distanceSqr(int i) {
+		if (i >= size) {
+			throw new IndexOutOfBoundsException(i + " >= " + size);
+		}
+		return distanceSqrs[i];
+	}
+
+	/**
+	 * Empties the results, ready for a query for the specified number of items.
+	 * @param k how many items the query is for
+	 */
+	void clear(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative: " + k);
+		}
+		if (items.length < k) {
+			items = new Object[k];
+			distanceSqrs = new double[k];
+		}
+		for (int i = 0; i < size; i++) {
+			items[i] = null;
+		}
+		this.k = k;
+		size = 0;
+	}
+
+	/**
+	 * Returns the square of the distance beyond which items can't make it into the results: that of the
+	 * furthest item found once there are enough, and infinite until then.
+	 */
+	double worst() {
+		return size < k ? Double.POSITIVE_INFINITY : distanceSqrs[0];
+	}
+
+	/**
+	 * Offers an item to the results, which keep it if it is one of the nearest found so far.
+	 * @param item the item
+	 * @param distanceSqr the square of the distance to the item
+	 */
+	void offer(Object item, double distanceSqr) {
+		if (size < k) {
+			// add to the bottom and sift up
+			int i = size++;
+			while (i > 0 && distanceSqrs[(i - 1) / 2] < distanceSqr) {
+				items[i] = items[(i - 1) / 2];
+				distanceSqrs[i] = distanceSqrs[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			items[i] = item;
+			distanceSqrs[i] = distanceSqr;
+		} else if (k > 0 && distanceSqr < distanceSqrs[0]) {
+			// replace the top and sift down
+			siftDown(item, distanceSqr, size);
+		}
+	}
+
+	/**
+	 * Sorts the results nearest first, which leaves them no longer a heap.
+	 */
+	void finish() {
+		for (int end = size - 1; end > 0; end--) {
+			Object item = items[end];
+			double distanceSqr = distanceSqrs[end];
+			items[end] = items[0];
+			distanceSqrs[end] = distanceSqrs[0];
+			siftDown(item, distanceSqr, end);
+		}
+	}
+
+	/**
+	 * Puts an item at the top of the heap and moves it down until the heap is in order.
+	 * @param item the item
+	 * @param distanceSqr the square of the distance to the item
+	 * @param end how many items of the heap to consider
+	 */
+	private void siftDown(Object item, double distanceSqr, int end) {
+		int i = 0;
+		while (2 * i + 1 < end) {
+			int child = 2 * i + 1;
+			if (child + 1 < end && distanceSqrs[child + 1] > distanceSqrs[child]) {
+				child++;
+			}
+			if (distanceSqrs[child] <= distanceSqr) {
+				break;
+			}
+			items[i] = items[child];
+			distanceSqrs[i] = distanceSqrs[child];
+			i = child;
+		}
+		items[i] = item;
+		distanceSqrs[i] = distanceSqr;
+	}
+}
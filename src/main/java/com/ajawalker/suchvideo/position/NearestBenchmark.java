@@ -0,0 +1,132 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares nearest neighbor queries on {@link Grid} and {@link CellGrid} with a brute force search of every
+ * item, for the same number of items spread uniformly over grids of different resolutions, i.e. at different
+ * densities of items per cell. Every query's results are checked against the brute force ones, and timings
+ * are reported as CSV in microseconds per query.
+ * <p>
+ * Takes as optional arguments the number of items (default 20000), the number of queries (default 2000), the
+ * number of neighbors to find (default 8) and a comma separated list of items per cell (default
+ * 0.25,1,4,16).
+ */
+public class NearestBenchmark {
+	private static final double CELL_SIZE = 10.0;
+
+	public static void main(String[] args) {
+		int numItems = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int numQueries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int k = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		String[] densities = (args.length > 3 ? args[3] : "0.25,1,4,16").split(",");
+
+		System.out.println("items,k,items_per_cell,brute_us,grid_us,cellgrid_us,grid_speedup,cellgrid_speedup");
+		for (String density : densities) {
+			double itemsPerCell = Double.parseDouble(density.trim());
+			int res = Math.max(1, (int) Math.ceil(Math.sqrt(numItems / itemsPerCell)));
+			double side = res * CELL_SIZE;
+			Random rnd = new Random(1);
+			List<Item> items = new ArrayList<>(numItems);
+			Grid<Item> grid = new Grid<>(0.0, side, 0.0, side, res, res);
+			for (int i = 0; i < numItems; i++) {
+				Item item = new Item(new Vector(rnd.nextDouble() * side, rnd.nextDouble() * side));
+				items.add(item);
+				grid.put(item);
+			}
+			CellGrid<Item> cellGrid = new CellGrid<>(0.0, side, 0.0, side, res, res);
+			cellGrid.rebuild(items);
+			Vector[] queries = new Vector[numQueries];
+			for (int q = 0; q < numQueries; q++) {
+				queries[q] = new Vector(rnd.nextDouble() * side, rnd.nextDouble() * side);
+			}
+
+			// run everything twice, only timing the second time around
+			Nearest<Item> expected = new Nearest<>(k);
+			Nearest<Item> found = new Nearest<>(k);
+			long brute = 0;
+			long gridTime = 0;
+			long cellGridTime = 0;
+			for (int round = 0; round < 2; round++) {
+				brute = 0;
+				gridTime = 0;
+				cellGridTime = 0;
+				for (Vector query : queries) {
+					long start = System.nanoTime();
+					bruteForce(items, query, k, expected);
+					long middle = System.nanoTime();
+					grid.nearest(query, k, found);
+					long end = System.nanoTime();
+					check(expected, found);
+					cellGrid.nearest(query, k, found);
+					long done = System.nanoTime();
+					check(expected, found);
+					brute += middle - start;
+					gridTime += end - middle;
+					cellGridTime += done - end;
+				}
+			}
+			System.out.format("%d,%d,%s,%.2f,%.2f,%.2f,%.1f,%.1f%n",
+					numItems,
+					k,
+					density.trim(),
+					brute / 1.0e3 / numQueries,
+					gridTime / 1.0e3 / numQueries,
+					cellGridTime / 1.0e3 / numQueries,
+					(double) brute / gridTime,
+					(double) brute / cellGridTime);
+		}
+	}
+
+	/**
+	 * Finds the items nearest to a point by measuring the distance to every item.
+	 * @param items all of the items
+	 * @param pos the position of the point
+	 * @param k how many items to find
+	 * @param nearest the results to fill in
+	 */
+	private static void bruteForce(List<Item> items, Vector pos, int k, Nearest<Item> nearest) {
+		nearest.clear(k);
+		for (Item item : items) {
+			double dx = item.pos.x() - pos.x();
+			double dy = item.pos.y() - pos.y();
+			nearest.offer(item, dx * dx + dy * dy);
+		}
+		nearest.finish();
+	}
+
+	/**
+	 * Makes sure a query found items at the same distances as the brute force search; items at exactly the
+	 * same distance may come in either order.
+	 * @param expected the results of the brute force search
+	 * @param found the results of the query
+	 */
+	private static void check(Nearest<Item> expected, Nearest<Item> found) {
+		if (found.size() != expected.size()) {
+			throw new IllegalStateException("found " + found.size() + " items instead of " + expected.size());
+		}
+		for (int i = 0; i < expected.size(); i++) {
+			if (found.distanceSqr(i) != expected.distanceSqr(i)) {
+				throw new IllegalStateException("item " + i + " is at " + found.distanceSqr(i) + " instead of " + expected.distanceSqr(i));
+			}
+		}
+	}
+
+	/**
+	 * Something which sits still.
+	 */
+	private static class Item implements Positioned {
+		private final Vector pos;
+
+		private Item(Vector pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		public Vector pos() {
+			return pos;
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Every item's neighbors within a radius, all worked out at once and kept in compressed sparse row form: the
+ * neighbors of every item are listed one after another in a single array of indices into the list of items,
+ * with a second array holding where each item's neighbors start. Steps which need every item's neighbors can
+ * then walk plain arrays rather than querying a grid once for each item.
+ * <p>
+ * Graphs are built from a {@link GridSnapshot} in parallel, with each task listing the neighbors of a range of
+ * items into its own buffer before they're all copied into place, and the arrays are reused from one build to
+ * the next. Neighbors may be listed out to a skin distance beyond the radius, in which case the graph stays
+ * good until some item has moved further than half the skin since it was built, and
+ * {@link #update(List, Executor, int)} only rebuilds it then; users of the graph must then check distances
+ * themselves.
+ * @param <T> the type of thing whose neighbors are listed
+ */
+public final class NeighborGraph<T extends Positioned> {
+	private final double radius;
+	private final double skin;
+
+	private int numItems = -1;
+	private int[] offsets = new int[1];
+	private int[] neighbors = new int[0];
+	private double[] refx = new double[0];
+	private double[] refy = new double[0];
+	private Run[] runs = new Run[0];
+
+	/**
+	 * Creates an empty graph which lists neighbors within exactly the specified radius, and so is rebuilt
+	 * whenever anything moves; it will be built upon the first update.
+	 * @param radius the radius within which items are neighbors
+	 */
+	public NeighborGraph(double radius) {
+		this(radius, 0.0);
+	}
+
+	/**
+	 * Creates an empty graph; it will be built upon the first update.
+	 * @param radius the radius within which items are neighbors
+	 * @param skin the extra distance beyond the radius to list neighbors within
+	 */
+	public NeighborGraph(double radius, double skin) {
+		if (!(radius > 0.0)) {
+			throw new IllegalArgumentException("radius must be positive: " + radius);
+		}
+		if (!(skin >= 0.0)) {
+			throw new IllegalArgumentException("skin must not be negative: " + skin);
+		}
+		this.radius = radius;
+		this.skin = skin;
+	}
+
+	/**
+	 * Returns the radius within which items are neighbors.
+	 */
+	public double radius() {
+		return radius;
+	}
+
+	/**
+	 * Returns the extra distance beyond the radius within which neighbors are listed.
+	 */
+	public double skin() {
+		return skin;
+	}
+
+	/**
+	 * Updates the graph for the current positions of the items, on this thread.
+	 * @param items the items, whose order must not change between updates
+	 * @return true if the graph was rebuilt, false if not
+	 * @see #update(List, Executor, int)
+	 */
+	public boolean update(List<? extends T> items) {
+		try {
+			return update(items, null, 1);
+		} catch (InterruptedException e) {
+			// nothing waits without an executor
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Updates the graph for the current positions of the items, rebuilding it if any item has moved further
+	 * than half the skin since the last build or if the number of items has changed.
+	 * @param items the items, whose order must not change between updates
+	 * @param exec the executor to build on, or null to build on this thread
+	 * @param numTasks how many tasks to split building into
+	 * @return true if the graph was rebuilt, false if not
+	 */
+	public boolean update(List<? extends T> items, Executor exec, int numTasks) throws InterruptedException {
+		if (items.size() == numItems) {
+			double limit = skin * skin / 4.0;
+			boolean valid = true;
+			int i = 0;
+			for (T item : items) {
+				double dx = item.pos().x() - refx[i];
+				double dy = item.pos().y() - refy[i];
+				i++;
+				if (dx * dx + dy * dy > limit) {
+					valid = false;
+					break;
+				}
+			}
+			if (valid) {
+				return false;
+			}
+		}
+		rebuild(items, exec, numTasks);
+		return true;
+	}
+
+	/**
+	 * Rebuilds the graph for the current positions of the items, on this thread, whether or not it needs it.
+	 * @param items the items
+	 */
+	public void rebuild(List<? extends T> items) {
+		try {
+			rebuild(items, null, 1);
+		} catch (InterruptedException e) {
+			// nothing waits without an executor
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Rebuilds the graph for the current positions of the items whether or not it needs it, splitting the
+	 * work into tasks which run on the executor, and waits for them all to finish.
+	 * @param items the items
+	 * @param exec the executor to build on, or null to build on this thread
+	 * @param numTasks how many tasks to split building into
+	 */
+	public void rebuild(List<? extends T> items, Executor exec, int numTasks) throws InterruptedException {
+		int n = items.size();
+		if (refx.length < n) {
+			refx = new double[n];
+			refy = new double[n];
+		}
+		if (offsets.length < n + 1) {
+			offsets = new int[n + 1];
+		}
+		double minx = Double.POSITIVE_INFINITY;
+		double maxx = Double.NEGATIVE_INFINITY;
+		double miny = Double.POSITIVE_INFINITY;
+		double maxy = Double.NEGATIVE_INFINITY;
+		int i = 0;
+		for (T item : items) {
+			refx[i] = item.pos().x();
+			refy[i] = item.pos().y();
+			minx = Math.min(minx, refx[i]);
+			maxx = Math.max(maxx, refx[i]);
+			miny = Math.min(miny, refy[i]);
+			maxy = Math.max(maxy, refy[i]);
+			i++;
+		}
+		numItems = n;
+		offsets[0] = 0;
+		if (n == 0) {
+			return;
+		}
+
+		// cells about as big as the reach of the graph over wherever the
+		// items are, with a little room so nothing lands on the far edges
+		final double reach = radius + skin;
+		int[] res = Grid.resolution(maxx - minx + reach, maxy - miny + reach, reach, n, Grid.DEFAULT_MAX_CELLS);
+		final GridSnapshot<T> grid = GridSnapshot.build(minx, maxx + reach, miny, maxy + reach, res[0], res[1], items, exec, numTasks, null);
+
+		// each task lists the neighbors of a range of items into its own
+		// buffer, remembering where each item's start within it
+		final int tasks = exec == null ? 1 : Math.max(1, Math.min(numTasks, n / 1024));
+		if (runs.length < tasks) {
+			Run[] more = Arrays.copyOf(runs, tasks);
+			for (int t = runs.length; t < tasks; t++) {
+				more[t] = new Run();
+			}
+			runs = more;
+		}
+		GridSnapshot.parallel(exec, tasks, n, new GridSnapshot.Range() {
+			@Override
+			public void run(int task, int from, int to) {
+				Run run = runs[task];
+				run.size = 0;
+				for (int i = from; i < to; i++) {
+					offsets[i] = run.size;
+					grid.forEachIndexWithin(refx[i], refy[i], reach, i, run);
+				}
+			}
+		});
+
+		// then every buffer is copied into place after the ones before it
+		int total = 0;
+		for (int t = 0; t < tasks; t++) {
+			runs[t].base = total;
+			total += runs[t].size;
+		}
+		if (neighbors.length < total) {
+			neighbors = new int[total + total / 8];
+		}
+		GridSnapshot.parallel(exec, tasks, n, new GridSnapshot.Range() {
+			@Override
+			public void run(int task, int from, int to) {
+				Run run = runs[task];
+				for (int i = from; i < to; i++) {
+					offsets[i] += run.base;
+				}
+				System.arraycopy(run.indices, 0, neighbors, run.base, run.size);
+			}
+		});
+		offsets[n] = total;
+	}
+
+	/**
+	 * Forces the graph to be rebuilt upon the next update, e.g. because the items have been reordered.
+	 */
+	public void invalidate() {
+		numItems = -1;
+	}
+
+	/**
+	 * Returns how many items the graph was last built for.
+	 */
+	public int numItems() {
+		return Math.max(0, numItems);
+	}
+
+	/**
+	 * Returns how many neighbors are listed, over all items; each pair of neighbors is listed twice, once from
+	 * each end.
+	 */
+	public int size() {
+		return numItems <= 0 ? 0 : offsets[numItems];
+	}
+
+	/**
+	 * Returns where the neighbors of an item start.
+	 * @param i the index of the item in the list the graph was built from
+	 */
+	public int start(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * Returns where the neighbors of an item end (exclusive).
+	 * @param i the index of the item in the list the graph was built from
+	 */
+	public int end(int i) {
+		return offsets[i + 1];
+	}
+
+	/**
+	 * Returns the neighbor listed at the specified place.
+	 * @param k the place, between the start and end of some item's neighbors
+	 * @return the index of the neighbor in the list the graph was built from
+	 */
+	public int neighbor(int k) {
+		return neighbors[k];
+	}
+
+	/**
+	 * A buffer of neighbors listed by one task.
+	 */
+	private static final class Run implements IndexVisitor {
+		private int[] indices = new int[256];
+		private int size = 0;
+		private int base = 0;
+
+		@Override
+		public void visit(int index) {
+			if (size == indices.length) {
+				indices = Arrays.copyOf(indices, indices.length * 2);
+			}
+			indices[size++] = index;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * How full the cells of a {@link Grid} were when it was looked at, for telling whether its resolution suits
+ * the things in it: lots of things per occupied cell means lookups check lots of things which are too far
+ * away, while lots of things outside the extents means they're all piled into the border cells.
+ */
+public final class Occupancy {
+	private final int resx;
+	private final int resy;
+	private final int items;
+	private final int occupied;
+	private final int most;
+	private final int outside;
+
+	/**
+	 * Creates a record of how full a grid is.
+	 * @param resx how many cells the x-axis is separated into
+	 * @param resy how many cells the y-axis is separated into
+	 * @param items how many items are in the grid
+	 * @param occupied how many cells hold at least one item, including the border cells
+	 * @param most how many items the fullest cell holds
+	 * @param outside how many items are outside the extents of the grid
+	 */
+	Occupancy(int resx, int resy, int items, int occupied, int most, int outside) {
+		this.resx = resx;
+		this.resy = resy;
+		this.items = items;
+		this.occupied = occupied;
+		this.most = most;
+		this.outside = outside;
+	}
+
+	/**
+	 * Returns how many cells the x-axis is separated into.
+	 */
+	public int resx() {
+		return resx;
+	}
+
+	/**
+	 * Returns how many cells the y-axis is separated into.
+	 */
+	public int resy() {
+		return resy;
+	}
+
+	/**
+	 * Returns how many cells there are, including the border cells which hold everything outside the extents.
+	 */
+	public int cells() {
+		return (resx + 2) * (resy + 2);
+	}
+
+	/**
+	 * Returns how many items are in the grid.
+	 */
+	public int items() {
+		return items;
+	}
+
+	/**
+	 * Returns how many cells hold at least one item.
+	 */
+	public int occupied() {
+		return occupied;
+	}
+
+	/**
+	 * Returns how many items the fullest cell holds.
+	 */
+	public int most() {
+		return most;
+	}
+
+	/**
+	 * Returns how many items are outside the extents of the grid, in its border cells.
+	 */
+	public int outside() {
+		return outside;
+	}
+
+	/**
+	 * Returns the average number of items in the cells which hold any.
+	 */
+	public double meanPerOccupied() {
+		return occupied == 0 ? 0.0 : (double) items / occupied;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%dx%d cells, %d items in %d cells (mean %.2f, most %d), %d outside",
+				resx, resy, items, occupied, meanPerOccupied(), most, outside);
+	}
+}
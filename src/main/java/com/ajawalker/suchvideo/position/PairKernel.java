@@ -0,0 +1,17 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * A force between pairs of particles of a {@link ParticleSystem}, worked out once for each pair and applied to
+ * both particles at once. Pair passes may run on many threads, but never show two pairs sharing a particle to
+ * a kernel at the same time, so a kernel may freely change both of its particles.
+ */
+public interface PairKernel {
+	/**
+	 * Applies the force between a pair of particles.
+	 * @param particles the particle system
+	 * @param a the index of one particle of the pair
+	 * @param b the index of the other particle of the pair
+	 * @param distanceSqr the square of the distance between the particles
+	 */
+	void apply(ParticleSystem particles, int a, int b, double distanceSqr);
+}
@@ -0,0 +1,16 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * Something which is shown pairs of neighbors one at a time, along with how far apart they are, e.g. to apply
+ * a force between them to both at once.
+ * @param <T> the type of item visited
+ */
+public interface PairVisitor<T> {
+	/**
+	 * Visits a pair of neighbors.
+	 * @param a one of the neighbors
+	 * @param b the other neighbor
+	 * @param distanceSqr the square of the distance between the neighbors
+	 */
+	void visit(T a, T b, double distanceSqr);
+}
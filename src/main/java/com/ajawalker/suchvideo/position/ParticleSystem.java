@@ -0,0 +1,370 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Particles which move about under forces, kept as flat arrays of primitives rather than as an object for each
+ * particle: every particle's position, velocity and acceleration sit at its index in arrays of x and y
+ * coordinates, so passes over every particle walk plain arrays and a step allocates nothing. Particles are
+ * numbered in the order they were added, and are never removed.
+ * <p>
+ * A step is made up of passes: body passes with {@link BodyKernel}s, which work on each particle on its own,
+ * and pair passes with {@link PairKernel}s, which work on each pair of particles within a radius of each other
+ * once. Pairs are found in a {@link GridSnapshot} of where the particles were when last indexed, sorted into
+ * the same cells as a {@link Grid} with the same extents and resolution. Both kinds of pass can be split into
+ * tasks on an executor; a pair pass runs the cells in strips as {@link CellGrid} does, so no two tasks ever
+ * work on the same particle at once, and the pairs are shown in the same order however many tasks there are.
+ * Finally {@link #integrate(double)} moves every particle by its acceleration.
+ */
+public final class ParticleSystem {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final double minx;
+	private final double maxx;
+	private final double miny;
+	private final double maxy;
+	private final int resx;
+	private final int resy;
+
+	private double[] x = new double[INITIAL_CAPACITY];
+	private double[] y = new double[INITIAL_CAPACITY];
+	private double[] vx = new double[INITIAL_CAPACITY];
+	private double[] vy = new double[INITIAL_CAPACITY];
+	private double[] ax = new double[INITIAL_CAPACITY];
+	private double[] ay = new double[INITIAL_CAPACITY];
+	private int size = 0;
+
+	private GridSnapshot<Positioned> snapshot = null;
+
+	/**
+	 * Constructs an empty particle system using the provided extents to index particles. Any particles outside
+	 * the extents will be placed in the same cell, thus pairs of those particles will not be found quickly.
+	 * @param minx minimum expected x coordinate of particle space
+	 * @param maxx maximum expected x coordinate of particle space
+	 * @param miny minimum expected y coordinate of particle space
+	 * @param maxy maximum expected y coordinate of particle space
+	 * @param resx how many cells to separate x-axis into; more cells require more memory but pairs are found faster
+	 * @param resy how many cells to separate y-axis into; more cells require more memory but pairs are found faster
+	 */
+	public ParticleSystem(double minx, double maxx, double miny, double maxy, int resx, int resy) {
+		this.minx = minx;
+		this.maxx = maxx;
+		this.miny = miny;
+		this.maxy = maxy;
+		this.resx = resx;
+		this.resy = resy;
+	}
+
+	/**
+	 * Constructs an empty particle system using the provided extents, whose cells are picked as in
+	 * {@link Grid#forRadius(double, double, double, double, double, int)}.
+	 * @param minx minimum expected x coordinate of particle space
+	 * @param maxx maximum expected x coordinate of particle space
+	 * @param miny minimum expected y coordinate of particle space
+	 * @param maxy maximum expected y coordinate of particle space
+	 * @param radius the radius of most pair passes
+	 * @param expectedParticles how many particles the system is expected to hold
+	 * @return the new particle system
+	 */
+	public static ParticleSystem forRadius(double minx, double maxx, double miny, double maxy, double radius, int expectedParticles) {
+		int[] res = Grid.resolution(maxx - minx, maxy - miny, radius, expectedParticles, Grid.DEFAULT_MAX_CELLS);
+		return new ParticleSystem(minx, maxx, miny, maxy, res[0], res[1]);
+	}
+
+	/**
+	 * Returns how many particles there are.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a particle with no acceleration.
+	 * @param x the x coordinate of the particle's position
+	 * @param y the y coordinate of the particle's position
+	 * @param vx the x value of the particle's velocity
+	 * @param vy the y value of the particle's velocity
+	 * @return the index of the new particle
+	 */
+	public int add(double x, double y, double vx, double vy) {
+		if (size == this.x.length) {
+			int capacity = size * 2;
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.vx = Arrays.copyOf(this.vx, capacity);
+			this.vy = Arrays.copyOf(this.vy, capacity);
+			ax = Arrays.copyOf(ax, capacity);
+			ay = Arrays.copyOf(ay, capacity);
+		}
+		this.x[size] = x;
+		this.y[size] = y;
+		this.vx[size] = vx;
+		this.vy[size] = vy;
+		return size++;
+	}
+
+	/**
+	 * Returns the x coordinate of a particle's position.
+	 * @param i the index of the particle
+	 */
+	public double x(int i) {
+		return x[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a particle's position.
+	 * @param i the index of the particle
+	 */
+	public double y(int i) {
+		return y[i];
+	}
+
+	/**
+	 * Returns the x value of a particle's velocity.
+	 * @param i the index of the particle
+	 */
+	public double vx(int i) {
+		return vx[i];
+	}
+
+	/**
+	 * Returns the y value of a particle's velocity.
+	 * @param i the index of the particle
+	 */
+	public double vy(int i) {
+		return vy[i];
+	}
+
+	/**
+	 * Returns the x value of a particle's acceleration.
+	 * @param i the index of the particle
+	 */
+	public double ax(int i) {
+		return ax[i];
+	}
+
+	/**
+	 * Returns the y value of a particle's acceleration.
+	 * @param i the index of the particle
+	 */
+	public double ay(int i) {
+		return ay[i];
+	}
+
+	/**
+	 * Returns a particle's position as a vector.
+	 * @param i the index of the particle
+	 */
+	public Vector pos(int i) {
+		return new Vector(x[i], y[i]);
+	}
+
+	/**
+	 * Returns a particle's velocity as a vector.
+	 * @param i the index of the particle
+	 */
+	public Vector vel(int i) {
+		return new Vector(vx[i], vy[i]);
+	}
+
+	/**
+	 * Moves a particle.
+	 * @param i the index of the particle
+	 * @param x the x coordinate of the particle's new position
+	 * @param y the y coordinate of the particle's new position
+	 */
+	public void setPosition(int i, double x, double y) {
+		this.x[i] = x;
+		this.y[i] = y;
+	}
+
+	/**
+	 * Changes a particle's velocity.
+	 * @param i the index of the particle
+	 * @param vx the x value of the particle's new velocity
+	 * @param vy the y value of the particle's new velocity
+	 */
+	public void setVelocity(int i, double vx, double vy) {
+		this.vx[i] = vx;
+		this.vy[i] = vy;
+	}
+
+	/**
+	 * Changes a particle's acceleration, e.g. to clear what was accumulated over the last step.
+	 * @param i the index of the particle
+	 * @param ax the x value of the particle's new acceleration
+	 * @param ay the y value of the particle's new acceleration
+	 */
+	public void setAcceleration(int i, double ax, double ay) {
+		this.ax[i] = ax;
+		this.ay[i] = ay;
+	}
+
+	/**
+	 * Adds to a particle's acceleration.
+	 * @param i the index of the particle
+	 * @param dax how much to add to the x value of the particle's acceleration
+	 * @param day how much to add to the y value of the particle's acceleration
+	 */
+	public void accelerate(int i, double dax, double day) {
+		ax[i] += dax;
+		ay[i] += day;
+	}
+
+	/**
+	 * Sorts every particle into cells where it is now, ready for pair passes and rectangle queries. Particles
+	 * added afterwards are left out of them until the next time the particles are indexed.
+	 */
+	public void index() {
+		try {
+			index(null, 1);
+		} catch (InterruptedException e) {
+			// nothing waits on other threads without an executor
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Sorts every particle into cells where it is now, in parallel, ready for pair passes and rectangle
+	 * queries. Particles must not move until this returns.
+	 * @param exec the executor to run work on, or null to do it all on this thread
+	 * @param numTasks how many tasks to split the work into
+	 */
+	public void index(Executor exec, int numTasks) throws InterruptedException {
+		snapshot = GridSnapshot.build(minx, maxx, miny, maxy, resx, resy, x, y, size, exec, numTasks);
+	}
+
+	/**
+	 * Applies a kernel to every pair of particles within a radius of each other, exactly once, at where the
+	 * particles were when last indexed.
+	 * @param radius the radius within which to apply the kernel to pairs
+	 * @param kernel the kernel to apply
+	 */
+	public void forEachPairWithin(double radius, PairKernel kernel) {
+		indexed().forEachIndexPairWithin(radius, pairs(kernel));
+	}
+
+	/**
+	 * Applies a kernel to every pair of particles within a radius of each other, exactly once, at where the
+	 * particles were when last indexed, splitting the cells into strips which are run in parallel.
+	 * @param radius the radius within which to apply the kernel to pairs
+	 * @param kernel the kernel to apply
+	 * @param exec the executor to run work on, or null to do it all on this thread
+	 * @param numTasks how many tasks to split the work into, roughly
+	 */
+	public void forEachPairWithin(double radius, PairKernel kernel, Executor exec, int numTasks) throws InterruptedException {
+		if (exec == null) {
+			forEachPairWithin(radius, kernel);
+		} else {
+			indexed().forEachIndexPairWithin(radius, pairs(kernel), exec, numTasks);
+		}
+	}
+
+	/**
+	 * Applies a kernel to every particle, in order.
+	 * @param kernel the kernel to apply
+	 */
+	public void forEachParticle(BodyKernel kernel) {
+		for (int i = 0; i < size; i++) {
+			kernel.apply(this, i);
+		}
+	}
+
+	/**
+	 * Applies a kernel to every particle, splitting the particles into ranges which are run in parallel.
+	 * @param kernel the kernel to apply
+	 * @param exec the executor to run work on, or null to do it all on this thread
+	 * @param numTasks how many tasks to split the work into
+	 */
+	public void forEachParticle(final BodyKernel kernel, Executor exec, int numTasks) throws InterruptedException {
+		int tasks = exec == null ? 1 : Math.max(1, Math.min(numTasks, size / 1024));
+		GridSnapshot.parallel(exec, tasks, size, new GridSnapshot.Range() {
+			@Override
+			public void run(int task, int from, int to) {
+				for (int i = from; i < to; i++) {
+					kernel.apply(ParticleSystem.this, i);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Shows the index of every particle within a rectangle, edges included, at where the particles were when
+	 * last indexed.
+	 * @param minx the minimum x coordinate of the rectangle
+	 * @param miny the minimum y coordinate of the rectangle
+	 * @param maxx the maximum x coordinate of the rectangle
+	 * @param maxy the maximum y coordinate of the rectangle
+	 * @param visitor the visitor to show each particle's index to
+	 */
+	public void forEachInRect(double minx, double miny, double maxx, double maxy, IndexVisitor visitor) {
+		indexed().forEachIndexInRect(minx, miny, maxx, maxy, visitor);
+	}
+
+	/**
+	 * Moves every particle over a time step: its velocity is changed by its acceleration and then its position
+	 * by its new velocity. Accelerations are left as they are.
+	 * @param time the amount of time to move for
+	 */
+	public void integrate(double time) {
+		integrate(time, 0, size);
+	}
+
+	/**
+	 * Moves every particle over a time step as in {@link #integrate(double)}, splitting the particles into
+	 * ranges which are moved in parallel.
+	 * @param time the amount of time to move for
+	 * @param exec the executor to run work on, or null to do it all on this thread
+	 * @param numTasks how many tasks to split the work into
+	 */
+	public void integrate(final double time, Executor exec, int numTasks) throws InterruptedException {
+		int tasks = exec == null ? 1 : Math.max(1, Math.min(numTasks, size / 1024));
+		GridSnapshot.parallel(exec, tasks, size, new GridSnapshot.Range() {
+			@Override
+			public void run(int task, int from, int to) {
+				integrate(time, from, to);
+			}
+		});
+	}
+
+	/**
+	 * Moves a range of particles over a time step.
+	 * @param time the amount of time to move for
+	 * @param from the index of the first particle
+	 * @param to the index after the last particle
+	 */
+	private void integrate(double time, int from, int to) {
+		for (int i = from; i < to; i++) {
+			vx[i] += ax[i] * time;
+			vy[i] += ay[i] * time;
+			x[i] += vx[i] * time;
+			y[i] += vy[i] * time;
+		}
+	}
+
+	/**
+	 * Returns the snapshot the particles were last indexed into.
+	 * @throws IllegalStateException if the particles have never been indexed
+	 */
+	private GridSnapshot<Positioned> indexed() {
+		if (snapshot == null) {
+			throw new IllegalStateException("particles have not been indexed");
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Wraps a kernel so it can be shown the pairs of a snapshot.
+	 * @param kernel the kernel
+	 * @return the visitor which applies the kernel
+	 */
+	private IndexPairVisitor pairs(final PairKernel kernel) {
+		return new IndexPairVisitor() {
+			@Override
+			public void visit(int a, int b, double distanceSqr) {
+				kernel.apply(ParticleSystem.this, a, b, distanceSqr);
+			}
+		};
+	}
+}
@@ -0,0 +1,135 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates evenly spaced random points using Bridson's Poisson-disk sampling. Points are grown outward from
+ * a random starting point, with candidates placed around already accepted points and checked against a
+ * background grid whose cells are small enough to hold at most one point. This fills a rectangle in time
+ * proportional to the number of points generated, no two of which are closer than the minimum distance.
+ */
+public class PoissonDisk {
+	private static final int CANDIDATES = 30;
+
+	private final double minx;
+	private final double maxx;
+	private final double miny;
+	private final double maxy;
+	private final double minDistance;
+
+	/**
+	 * Creates a new sampler for the provided rectangle, which must have some area.
+	 * @param minx minimum x coordinate of generated points
+	 * @param maxx maximum x coordinate of generated points
+	 * @param miny minimum y coordinate of generated points
+	 * @param maxy maximum y coordinate of generated points
+	 * @param minDistance the minimum distance between any two generated points
+	 */
+	public PoissonDisk(double minx, double maxx, double miny, double maxy, double minDistance) {
+		if (!(maxx > minx) || !(maxy > miny)) {
+			throw new IllegalArgumentException("rectangle must have positive width and height: " + minx + ".." + maxx
+					+ " by " + miny + ".." + maxy);
+		}
+		if (!(minDistance > 0.0)) {
+			throw new IllegalArgumentException("minimum distance must be positive: " + minDistance);
+		}
+		this.minx = minx;
+		this.maxx = maxx;
+		this.miny = miny;
+		this.maxy = maxy;
+		this.minDistance = minDistance;
+	}
+
+	/**
+	 * Fills the rectangle with points until there is no more room.
+	 * @param rnd the source of randomness to use
+	 * @return the generated points
+	 */
+	public List<Vector> sample(Random rnd) {
+		double size = minDistance / Math.sqrt(2.0);
+		int resx = (int) Math.ceil((maxx - minx) / size);
+		int resy = (int) Math.ceil((maxy - miny) / size);
+		int[] grid = new int[resx * resy];
+		Arrays.fill(grid, -1);
+
+		List<Vector> points = new ArrayList<>();
+		int[] active = new int[16];
+		int numActive = 0;
+		Vector first = new Vector(minx + rnd.nextDouble() * (maxx - minx), miny + rnd.nextDouble() * (maxy - miny));
+		grid[cell(first, size, resy)] = 0;
+		points.add(first);
+		active[numActive++] = 0;
+
+		double dsqr = minDistance * minDistance;
+		while (numActive > 0) {
+			// try candidates in the annulus around a random active point
+			int a = rnd.nextInt(numActive);
+			Vector point = points.get(active[a]);
+			boolean found = false;
+			for (int c = 0; c < CANDIDATES && !found; c++) {
+				double r = minDistance * Math.sqrt(1.0 + rnd.nextDouble() * 3.0);
+				Vector candidate = point.add(Vector.radial(rnd.nextDouble() * 2.0 * Math.PI, r));
+				if (candidate.x() < minx || candidate.x() >= maxx || candidate.y() < miny || candidate.y() >= maxy) {
+					continue;
+				}
+
+				// only the cells within two of the candidate's cell can hold points that are too close
+				int cx = (int) ((candidate.x() - minx) / size);
+				int cy = (int) ((candidate.y() - miny) / size);
+				boolean clear = true;
+				for (int x = Math.max(0, cx - 2); x <= Math.min(resx - 1, cx + 2) && clear; x++) {
+					for (int y = Math.max(0, cy - 2); y <= Math.min(resy - 1, cy + 2) && clear; y++) {
+						int other = grid[x * resy + y];
+						clear = other < 0 || candidate.distanceToSqr(points.get(other)) >= dsqr;
+					}
+				}
+				if (clear) {
+					grid[cx * resy + cy] = points.size();
+					if (numActive == active.length) {
+						active = Arrays.copyOf(active, numActive * 2);
+					}
+					active[numActive++] = points.size();
+					points.add(candidate);
+					found = true;
+				}
+			}
+
+			// a point with no room left around it is no longer active
+			if (!found) {
+				active[a] = active[--numActive];
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Fills the rectangle with points and returns a random selection of them, so that the selection is
+	 * spread evenly over the whole rectangle.
+	 * @param rnd the source of randomness to use
+	 * @param limit the maximum number of points to return
+	 * @return the generated points, fewer than the limit if no more fit in the rectangle
+	 */
+	public List<Vector> sample(Random rnd, int limit) {
+		List<Vector> points = sample(rnd);
+		if (points.size() <= limit) {
+			return points;
+		}
+		Collections.shuffle(points, rnd);
+		return new ArrayList<>(points.subList(0, limit));
+	}
+
+	/**
+	 * Calculates the background grid cell of a point.
+	 * @param point the point
+	 * @param size the size of a cell
+	 * @param resy the number of cells along the y-axis
+	 * @return the index of the cell
+	 */
+	private int cell(Vector point, double size, int resy) {
+		return (int) ((point.x() - minx) / size) * resy + (int) ((point.y() - miny) / size);
+	}
+}
@@ -0,0 +1,344 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.*;
+
+/**
+ * A 2-dimensional index of positioned things which adapts to how they're spread out. Space is split into
+ * quarters, and each quarter into quarters again wherever more than a bucket's worth of things are, so
+ * crowded places get small cells and empty places get big ones; this suits things which pile up in a few
+ * places far better than a {@link Grid}, whose cells are all the same size. Quarters which empty out are
+ * merged back together again.
+ * <p>
+ * Things outside the extents go in whichever outermost quarter is nearest them, thus lookups of those items
+ * will not be optimized.
+ * @param <T> the type of thing which will be indexed in this tree
+ */
+public class QuadTree<T extends Positioned> implements SpatialIndex<T> {
+	private static final int DEFAULT_BUCKET_SIZE = 8;
+	private static final int MAX_DEPTH = 24;
+
+	private final int bucketSize;
+	private final Node root;
+	private final Map<T, Node> index = new HashMap<>();
+
+	/**
+	 * Constructs a tree using the provided extents and a default bucket size.
+	 * @param minx minimum expected x coordinate of tree space
+	 * @param maxx maximum expected x coordinate of tree space
+	 * @param miny minimum expected y coordinate of tree space
+	 * @param maxy maximum expected y coordinate of tree space
+	 */
+	public QuadTree(double minx, double maxx, double miny, double maxy) {
+		this(minx, maxx, miny, maxy, DEFAULT_BUCKET_SIZE);
+	}
+
+	/**
+	 * Constructs a tree using the provided extents.
+	 * @param minx minimum expected x coordinate of tree space
+	 * @param maxx maximum expected x coordinate of tree space
+	 * @param miny minimum expected y coordinate of tree space
+	 * @param maxy maximum expected y coordinate of tree space
+	 * @param bucketSize how many things a quarter may hold before it's split; bigger buckets mean fewer
+	 *                   quarters to walk but more things to check in each
+	 */
+	public QuadTree(double minx, double maxx, double miny, double maxy, int bucketSize) {
+		if (bucketSize < 1) {
+			throw new IllegalArgumentException("bucket size must be positive: " + bucketSize);
+		}
+		this.bucketSize = bucketSize;
+		root = new Node(null, bucketSize + 1, minx, maxx, miny, maxy, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Returns how many items are in the tree.
+	 */
+	public int size() {
+		return root.total;
+	}
+
+	@Override
+	public boolean put(T item) {
+		double x = item.pos().x();
+		double y = item.pos().y();
+		Node leaf = index.get(item);
+		if (leaf != null) {
+			if (leaf.holds(x, y)) {
+				return false;
+			}
+			detach(leaf, item);
+		}
+
+		Node node = root;
+		node.total++;
+		while (node.children != null) {
+			node = node.child(x, y);
+			node.total++;
+		}
+		node.add(item);
+		index.put(item, node);
+		if (node.count > bucketSize) {
+			split(node);
+		}
+		return leaf == null;
+	}
+
+	@Override
+	public boolean remove(T item) {
+		Node leaf = index.remove(item);
+		if (leaf == null) {
+			return false;
+		}
+		detach(leaf, item);
+		return true;
+	}
+
+	@Override
+	public Collection<T> neighbors(T item, double radius) {
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(item, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
+			}
+		});
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	@Override
+	public Collection<T> neighbors(Vector pos, double radius) {
+		final List<T> neighbors = new ArrayList<>();
+		forEachNeighbor(pos, radius, new Visitor<T>() {
+			@Override
+			public void visit(T neighbor) {
+				neighbors.add(neighbor);
+			}
+		});
+		return Collections.unmodifiableList(neighbors);
+	}
+
+	@Override
+	public void forEachNeighbor(T item, double radius, Visitor<? super T> visitor) {
+		scan(root, item.pos().x(), item.pos().y(), radius * radius, item, visitor, null);
+	}
+
+	@Override
+	public void forEachNeighbor(T item, double radius, DistanceVisitor<? super T> visitor) {
+		scan(root, item.pos().x(), item.pos().y(), radius * radius, item, null, visitor);
+	}
+
+	@Override
+	public void forEachNeighbor(Vector pos, double radius, Visitor<? super T> visitor) {
+		scan(root, pos.x(), pos.y(), radius * radius, null, visitor, null);
+	}
+
+	@Override
+	public void forEachNeighbor(Vector pos, double radius, DistanceVisitor<? super T> visitor) {
+		scan(root, pos.x(), pos.y(), radius * radius, null, null, visitor);
+	}
+
+	/**
+	 * Shows every item within a radius of a point to one of two kinds of visitor, skipping quarters which are
+	 * empty or too far away.
+	 * @param node the quarter to look in
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param rsqr the square of the radius within which to visit neighbors
+	 * @param exclude an item to leave out, or null
+	 * @param visitor the visitor to show each neighbor to, or null
+	 * @param distanceVisitor the visitor to show each neighbor and its distance to, or null
+	 */
+	@SuppressWarnings("unchecked")
+	private void scan(Node node, double x, double y, double rsqr, T exclude, Visitor<? super T> visitor, DistanceVisitor<? super T> distanceVisitor) {
+		if (node.children == null) {
+			for (int i = 0; i < node.count; i++) {
+				T neighbor = (T) node.items[i];
+				if (neighbor != exclude) {
+					double dx = neighbor.pos().x() - x;
+					double dy = neighbor.pos().y() - y;
+					double dsqr = dx * dx + dy * dy;
+					if (dsqr <= rsqr) {
+						if (visitor != null) {
+							visitor.visit(neighbor);
+						} else {
+							distanceVisitor.visit(neighbor, dsqr);
+						}
+					}
+				}
+			}
+		} else {
+			for (Node child : node.children) {
+				if (child.total > 0 && child.distanceSqr(x, y) <= rsqr) {
+					scan(child, x, y, rsqr, exclude, visitor, distanceVisitor);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes an item out of its quarter, merging the quarters around it back together if few enough things
+	 * are left in them.
+	 * @param leaf the quarter holding the item
+	 * @param item the item
+	 */
+	@SuppressWarnings("unchecked")
+	private void detach(Node leaf, T item) {
+		leaf.remove(item);
+		for (Node node = leaf; node != null; node = node.parent) {
+			node.total--;
+		}
+
+		// merge at half a bucket rather than a whole one so a thing going
+		// back and forth doesn't keep splitting and merging the same quarter
+		Node merge = null;
+		for (Node node = leaf.parent; node != null && node.total <= bucketSize / 2; node = node.parent) {
+			merge = node;
+		}
+		if (merge != null) {
+			Object[] items = new Object[Math.max(bucketSize + 1, merge.total)];
+			merge.count = gather(merge, items, 0);
+			merge.items = items;
+			merge.children = null;
+			for (int i = 0; i < merge.count; i++) {
+				index.put((T) items[i], merge);
+			}
+		}
+	}
+
+	/**
+	 * Copies every item under a quarter into an array.
+	 * @param node the quarter
+	 * @param items the array to copy into
+	 * @param at where in the array to start copying
+	 * @return where in the array copying finished
+	 */
+	private int gather(Node node, Object[] items, int at) {
+		if (node.children == null) {
+			System.arraycopy(node.items, 0, items, at, node.count);
+			return at + node.count;
+		}
+		for (Node child : node.children) {
+			at = gather(child, items, at);
+		}
+		return at;
+	}
+
+	/**
+	 * Splits an overfull quarter into four, and any of those which are still overfull, until every quarter
+	 * holds at most a bucket's worth of things or is too small to split.
+	 * @param node the quarter to split
+	 */
+	@SuppressWarnings("unchecked")
+	private void split(Node node) {
+		if (node.depth >= MAX_DEPTH) {
+			return;
+		}
+		double midx = (node.minx + node.maxx) / 2.0;
+		double midy = (node.miny + node.maxy) / 2.0;
+		node.children = new Node[]{
+				new Node(node, bucketSize + 1, node.minx, midx, node.miny, midy, node.lox, midx, node.loy, midy),
+				new Node(node, bucketSize + 1, midx, node.maxx, node.miny, midy, midx, node.hix, node.loy, midy),
+				new Node(node, bucketSize + 1, node.minx, midx, midy, node.maxy, node.lox, midx, midy, node.hiy),
+				new Node(node, bucketSize + 1, midx, node.maxx, midy, node.maxy, midx, node.hix, midy, node.hiy)
+		};
+		for (int i = 0; i < node.count; i++) {
+			T item = (T) node.items[i];
+			Node child = node.child(item.pos().x(), item.pos().y());
+			child.add(item);
+			child.total++;
+			index.put(item, child);
+		}
+		node.items = null;
+		node.count = 0;
+		for (Node child : node.children) {
+			if (child.count > bucketSize) {
+				split(child);
+			}
+		}
+	}
+
+	/**
+	 * A quarter of its parent's space; the root covers everything. Quarters either hold things themselves or
+	 * have quarters of their own.
+	 */
+	private static class Node {
+		private final Node parent;
+		private final int depth;
+		private final double minx;
+		private final double maxx;
+		private final double miny;
+		private final double maxy;
+		private final double lox;
+		private final double hix;
+		private final double loy;
+		private final double hiy;
+
+		private Node[] children = null;
+		private Object[] items;
+		private int count = 0;
+		private int total = 0;
+
+		/**
+		 * Creates an empty quarter. Its space is split in the middle of its extents, but it holds everything
+		 * within its bounds, which reach out forever along the edges of the tree.
+		 */
+		private Node(Node parent, int capacity, double minx, double maxx, double miny, double maxy, double lox, double hix, double loy, double hiy) {
+			this.parent = parent;
+			this.depth = parent == null ? 0 : parent.depth + 1;
+			this.minx = minx;
+			this.maxx = maxx;
+			this.miny = miny;
+			this.maxy = maxy;
+			this.lox = lox;
+			this.hix = hix;
+			this.loy = loy;
+			this.hiy = hiy;
+			this.items = new Object[capacity];
+		}
+
+		/**
+		 * Returns whether a point is within the bounds of this quarter.
+		 */
+		private boolean holds(double x, double y) {
+			return x >= lox && x < hix && y >= loy && y < hiy;
+		}
+
+		/**
+		 * Returns the square of the distance from a point to the nearest part of this quarter.
+		 */
+		private double distanceSqr(double x, double y) {
+			double dx = x < lox ? lox - x : x > hix ? x - hix : 0.0;
+			double dy = y < loy ? loy - y : y > hiy ? y - hiy : 0.0;
+			return dx * dx + dy * dy;
+		}
+
+		/**
+		 * Returns which of this quarter's quarters a point is in.
+		 */
+		private Node child(double x, double y) {
+			return children[(x >= children[0].hix ? 1 : 0) + (y >= children[0].hiy ? 2 : 0)];
+		}
+
+		/**
+		 * Adds an item to the things held by this quarter, making room if it's full.
+		 */
+		private void add(Object item) {
+			if (count == items.length) {
+				items = Arrays.copyOf(items, items.length * 2);
+			}
+			items[count++] = item;
+		}
+
+		/**
+		 * Removes an item from the things held by this quarter by moving the last one into its place.
+		 */
+		private void remove(Object item) {
+			for (int i = 0; i < count; i++) {
+				if (items[i] == item) {
+					items[i] = items[--count];
+					items[count] = null;
+					return;
+				}
+			}
+		}
+	}
+}
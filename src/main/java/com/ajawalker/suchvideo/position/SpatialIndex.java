@@ -0,0 +1,76 @@
+package com.ajawalker.suchvideo.position;
+
+import java.util.Collection;
+
+/**
+ * A 2-dimensional index of positioned things which can be updated one thing at a time and asked which things
+ * are near a point. Things don't tell the index when they move, so whoever moves them puts them again.
+ * @param <T> the type of thing which will be indexed
+ */
+public interface SpatialIndex<T extends Positioned> {
+	/**
+	 * Puts the item into the index, or moves it to its current position if it's already there.
+	 * @param item the item to put into the index
+	 * @return true if the item was not already in the index, false if it was
+	 */
+	boolean put(T item);
+
+	/**
+	 * Removes the item from the index.
+	 * @param item the item to remove from the index
+	 * @return true if the item was in the index, false if it was not
+	 */
+	boolean remove(T item);
+
+	/**
+	 * Returns all neighbors which are within the specified radius of the provided item.
+	 * @param item the item whose neighbors to find
+	 * @param radius the radius within which to find neighbors
+	 * @return a collection of neighbors within the specified radius
+	 */
+	Collection<T> neighbors(T item, double radius);
+
+	/**
+	 * Returns all neighbors which are within the specified radius of the specified point.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to find neighbors
+	 * @return a collection of neighbors within the specified radius
+	 */
+	Collection<T> neighbors(Vector pos, double radius);
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item, without allocating
+	 * anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	void forEachNeighbor(T item, double radius, Visitor<? super T> visitor);
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the provided item along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param item the item whose neighbors to visit
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	void forEachNeighbor(T item, double radius, DistanceVisitor<? super T> visitor);
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point, without allocating
+	 * anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	void forEachNeighbor(Vector pos, double radius, Visitor<? super T> visitor);
+
+	/**
+	 * Visits all neighbors which are within the specified radius of the specified point along with the square
+	 * of their distance, without allocating anything along the way.
+	 * @param pos the position of the point
+	 * @param radius the radius within which to visit neighbors
+	 * @param visitor the visitor to show each neighbor to
+	 */
+	void forEachNeighbor(Vector pos, double radius, DistanceVisitor<? super T> visitor);
+}
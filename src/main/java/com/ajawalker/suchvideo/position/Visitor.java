@@ -0,0 +1,13 @@
+package com.ajawalker.suchvideo.position;
+
+/**
+ * Something which is shown items one at a time, e.g. the results of a spatial query.
+ * @param <T> the type of item visited
+ */
+public interface Visitor<T> {
+	/**
+	 * Visits an item.
+	 * @param item the item
+	 */
+	void visit(T item);
+}
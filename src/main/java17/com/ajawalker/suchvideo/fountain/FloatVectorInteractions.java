@@ -0,0 +1,92 @@
+package com.ajawalker.suchvideo.fountain;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Applies magnetism and repulsion between each body and its neighbors within the cutoff using the Vector API.
+ * Neighbors are gathered a full vector at a time straight from the store's arrays, both forces are worked out
+ * for every lane at once, and lanes beyond the cutoff are masked out of the sums. Neighbors left over after
+ * the last full vector are done one at a time. Works entirely in
+ * single precision until each body's total is added to the force arrays. Only works with a
+ * {@link FloatBodyStore}.
+ */
+public class FloatVectorInteractions implements BatchForce {
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	private final NeighborList neighbors;
+	private final float magnetismDistance;
+	private final float magnetismStrength;
+	private final float repulsionDistance;
+	private final float repulsionStrength;
+
+	/**
+	 * Creates new interactions.
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param magnetism the magnetism between bodies
+	 * @param repulsion the repulsion between bodies
+	 */
+	public FloatVectorInteractions(NeighborList neighbors, Magnetism magnetism, Repulsion repulsion) {
+		this.neighbors = neighbors;
+		this.magnetismDistance = (float) magnetism.distance();
+		this.magnetismStrength = (float) magnetism.strength();
+		this.repulsionDistance = (float) repulsion.distance();
+		this.repulsionStrength = (float) repulsion.strength();
+	}
+
+	@Override
+	public void apply(BodyStore store, int[] indices, int from, int to, double[] fx, double[] fy) {
+		FloatBodyStore bodies = (FloatBodyStore) store;
+		int[] nbrs = neighbors.neighborArray();
+		float csqr = (float) (neighbors.cutoff() * neighbors.cutoff());
+		int lanes = SPECIES.length();
+		FloatVector one = FloatVector.broadcast(SPECIES, 1.0f);
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			float x = bodies.x[i];
+			float y = bodies.y[i];
+			float attract = -magnetismStrength * bodies.charge[i];
+			FloatVector sumx = FloatVector.zero(SPECIES);
+			FloatVector sumy = FloatVector.zero(SPECIES);
+			int n = neighbors.start(i);
+			int end = neighbors.end(i);
+			for (; n + lanes <= end; n += lanes) {
+				FloatVector dx = FloatVector.fromArray(SPECIES, bodies.x, 0, nbrs, n).sub(x);
+				FloatVector dy = FloatVector.fromArray(SPECIES, bodies.y, 0, nbrs, n).sub(y);
+				FloatVector charge = FloatVector.fromArray(SPECIES, bodies.charge, 0, nbrs, n);
+				FloatVector dsqr = dx.mul(dx).add(dy.mul(dy));
+				VectorMask<Float> within = dsqr.compare(VectorOperators.LE, csqr);
+				FloatVector inverse = one.div(dsqr.sqrt());
+				FloatVector m = inverse.mul(magnetismDistance);
+				FloatVector r = inverse.mul(repulsionDistance);
+				FloatVector rsqr = r.mul(r);
+				FloatVector scale = m.mul(m).mul(m).mul(charge).mul(attract)
+						.sub(rsqr.mul(rsqr).mul(repulsionStrength))
+						.mul(inverse);
+				sumx = sumx.add(dx.mul(scale), within);
+				sumy = sumy.add(dy.mul(scale), within);
+			}
+			float restx = 0.0f;
+			float resty = 0.0f;
+			for (; n < end; n++) {
+				int j = nbrs[n];
+				float dx = bodies.x[j] - x;
+				float dy = bodies.y[j] - y;
+				float dsqr = dx * dx + dy * dy;
+				if (dsqr <= csqr) {
+					float inverse = 1.0f / (float) Math.sqrt(dsqr);
+					float m = magnetismDistance * inverse;
+					float r = repulsionDistance * inverse;
+					float rsqr = r * r;
+					float scale = (attract * bodies.charge[j] * m * m * m - repulsionStrength * rsqr * rsqr) * inverse;
+					restx += dx * scale;
+					resty += dy * scale;
+				}
+			}
+			fx[i] += sumx.reduceLanes(VectorOperators.ADD) + restx;
+			fy[i] += sumy.reduceLanes(VectorOperators.ADD) + resty;
+		}
+	}
+}
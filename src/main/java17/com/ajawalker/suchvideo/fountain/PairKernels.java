@@ -0,0 +1,57 @@
+package com.ajawalker.suchvideo.fountain;
+
+/**
+ * Picks the kernel which applies magnetism and repulsion between neighboring bodies. This is the Java 17
+ * version from the multi-release jar, which uses the Vector API kernels when the {@code jdk.incubator.vector}
+ * module has been added to the JVM and falls back to the scalar kernels when it hasn't. Setting the system
+ * property {@code fountain.simd} to {@code false} forces the scalar kernels.
+ */
+public class PairKernels {
+	/**
+	 * Creates the kernel for the provided precision.
+	 * @param precision the precision the bodies are stored in
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param magnetism the magnetism between bodies
+	 * @param repulsion the repulsion between bodies
+	 * @return the kernel
+	 */
+	public static BatchForce create(Precision precision, NeighborList neighbors, Magnetism magnetism, Repulsion repulsion) {
+		if (Boolean.parseBoolean(System.getProperty("fountain.simd", "true"))) {
+			try {
+				return vector(precision, neighbors, magnetism, repulsion);
+			} catch (LinkageError e) {
+				// the incubator module isn't there, so the vector kernels can't load
+			}
+		}
+		return scalar(precision, neighbors, magnetism, repulsion);
+	}
+
+	/**
+	 * Creates the scalar kernel for the provided precision, which works on any JVM.
+	 * @param precision the precision the bodies are stored in
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param magnetism the magnetism between bodies
+	 * @param repulsion the repulsion between bodies
+	 * @return the kernel
+	 */
+	public static BatchForce scalar(Precision precision, NeighborList neighbors, Magnetism magnetism, Repulsion repulsion) {
+		return precision == Precision.FLOAT
+				? new FloatInteractions(neighbors, magnetism, repulsion)
+				: new Interactions(neighbors, magnetism, repulsion);
+	}
+
+	/**
+	 * Creates the Vector API kernel for the provided precision.
+	 * @param precision the precision the bodies are stored in
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param magnetism the magnetism between bodies
+	 * @param repulsion the repulsion between bodies
+	 * @return the kernel
+	 * @throws LinkageError if the {@code jdk.incubator.vector} module is not available
+	 */
+	public static BatchForce vector(Precision precision, NeighborList neighbors, Magnetism magnetism, Repulsion repulsion) {
+		return precision == Precision.FLOAT
+				? new FloatVectorInteractions(neighbors, magnetism, repulsion)
+				: new VectorInteractions(neighbors, magnetism, repulsion);
+	}
+}
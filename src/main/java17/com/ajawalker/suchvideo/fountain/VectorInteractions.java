@@ -0,0 +1,90 @@
+package com.ajawalker.suchvideo.fountain;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Applies magnetism and repulsion between each body and its neighbors within the cutoff using the Vector API.
+ * Neighbors are gathered a full vector at a time straight from the store's arrays, both forces are worked out
+ * for every lane at once, and lanes beyond the cutoff are masked out of the sums. Neighbors left over after
+ * the last full vector are done one at a time. Only works with a {@link DoubleBodyStore}.
+ */
+public class VectorInteractions implements BatchForce {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private final NeighborList neighbors;
+	private final double magnetismDistance;
+	private final double magnetismStrength;
+	private final double repulsionDistance;
+	private final double repulsionStrength;
+
+	/**
+	 * Creates new interactions.
+	 * @param neighbors the neighbors of each body, which must be kept up to date
+	 * @param magnetism the magnetism between bodies
+	 * @param repulsion the repulsion between bodies
+	 */
+	public VectorInteractions(NeighborList neighbors, Magnetism magnetism, Repulsion repulsion) {
+		this.neighbors = neighbors;
+		this.magnetismDistance = magnetism.distance();
+		this.magnetismStrength = magnetism.strength();
+		this.repulsionDistance = repulsion.distance();
+		this.repulsionStrength = repulsion.strength();
+	}
+
+	@Override
+	public void apply(BodyStore store, int[] indices, int from, int to, double[] fx, double[] fy) {
+		DoubleBodyStore bodies = (DoubleBodyStore) store;
+		int[] nbrs = neighbors.neighborArray();
+		double csqr = neighbors.cutoff() * neighbors.cutoff();
+		int lanes = SPECIES.length();
+		DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+		for (int k = from; k < to; k++) {
+			int i = indices[k];
+			double x = bodies.x[i];
+			double y = bodies.y[i];
+			double attract = -magnetismStrength * bodies.charge[i];
+			DoubleVector sumx = DoubleVector.zero(SPECIES);
+			DoubleVector sumy = DoubleVector.zero(SPECIES);
+			int n = neighbors.start(i);
+			int end = neighbors.end(i);
+			for (; n + lanes <= end; n += lanes) {
+				DoubleVector dx = DoubleVector.fromArray(SPECIES, bodies.x, 0, nbrs, n).sub(x);
+				DoubleVector dy = DoubleVector.fromArray(SPECIES, bodies.y, 0, nbrs, n).sub(y);
+				DoubleVector charge = DoubleVector.fromArray(SPECIES, bodies.charge, 0, nbrs, n);
+				DoubleVector dsqr = dx.mul(dx).add(dy.mul(dy));
+				VectorMask<Double> within = dsqr.compare(VectorOperators.LE, csqr);
+				DoubleVector inverse = one.div(dsqr.sqrt());
+				DoubleVector m = inverse.mul(magnetismDistance);
+				DoubleVector r = inverse.mul(repulsionDistance);
+				DoubleVector rsqr = r.mul(r);
+				DoubleVector scale = m.mul(m).mul(m).mul(charge).mul(attract)
+						.sub(rsqr.mul(rsqr).mul(repulsionStrength))
+						.mul(inverse);
+				sumx = sumx.add(dx.mul(scale), within);
+				sumy = sumy.add(dy.mul(scale), within);
+			}
+			double restx = 0.0;
+			double resty = 0.0;
+			for (; n < end; n++) {
+				int j = nbrs[n];
+				double dx = bodies.x[j] - x;
+				double dy = bodies.y[j] - y;
+				double dsqr = dx * dx + dy * dy;
+				if (dsqr <= csqr) {
+					double inverse = 1.0 / Math.sqrt(dsqr);
+					double m = magnetismDistance * inverse;
+					double r = repulsionDistance * inverse;
+					double rsqr = r * r;
+					double scale = (attract * bodies.charge[j] * m * m * m - repulsionStrength * rsqr * rsqr) * inverse;
+					restx += dx * scale;
+					resty += dy * scale;
+				}
+			}
+			fx[i] += sumx.reduceLanes(VectorOperators.ADD) + restx;
+			fy[i] += sumy.reduceLanes(VectorOperators.ADD) + resty;
+		}
+	}
+}